@@ -0,0 +1,123 @@
+#!/usr/bin/env bash
+# Compares platform threads against virtual threads on the catalog and order endpoints.
+#
+# Requirements: Java 21, a running PostgreSQL with the sample data (docker-compose up -d postgres)
+# and the `hey` load generator (https://github.com/rakyll/hey) on the PATH.
+#
+# Usage: ./perf/thread-mode-comparison.sh [concurrency] [requests]
+# Results are written to perf/results/<timestamp>/ as one hey report per mode and endpoint, plus a
+# summary.txt with throughput and p50/p99 latency. Commit the summary with the change it measures;
+# the raw reports and application logs stay out of the repository.
+#
+# Both modes start from the same data: before each run the ordered products get enough stock for
+# every order POST, and orders created by the previous run are deleted. The original stock is put
+# back when the script exits. PSQL can point at another database client if PostgreSQL does not run
+# in the docker-compose container.
+
+set -euo pipefail
+
+CONCURRENCY=${1:-200}
+REQUESTS=${2:-20000}
+PORT=${PORT:-8080}
+BASE_URL="http://localhost:${PORT}"
+ORDER_USER_ID=${ORDER_USER_ID:-2}
+ORDER_PRODUCTS="3,19"
+ORDER_BODY='{"items":[{"productId":3,"quantity":1},{"productId":19,"quantity":1}]}'
+ORDER_REQUESTS=$((REQUESTS / 10))
+PSQL=${PSQL:-"docker exec -i ecommerce-postgres psql -U postgres -d ecommerce_db -qtA -v ON_ERROR_STOP=1"}
+
+cd "$(dirname "$0")/.."
+
+# Without Java 21 the virtual-threads flag is ignored and both runs would measure platform threads
+JAVA_MAJOR=$(java -version 2>&1 | awk -F'"' '/version/ {split($2, v, "."); print v[1]}')
+if [[ "${JAVA_MAJOR:-0}" -lt 21 ]]; then
+    echo "Java 21 or later is required, found ${JAVA_MAJOR:-none}" >&2
+    exit 1
+fi
+if ! command -v hey > /dev/null; then
+    echo "hey is not on the PATH" >&2
+    exit 1
+fi
+if ! $PSQL -c "SELECT 1" > /dev/null; then
+    echo "Cannot reach the database with: $PSQL" >&2
+    exit 1
+fi
+
+RESULTS_DIR="perf/results/$(date +%Y%m%d-%H%M%S)"
+mkdir -p "$RESULTS_DIR"
+
+./mvnw -q -B clean package -DskipTests -Pvirtual-threads
+JAR=$(ls target/ecommerce-backend-*.jar | head -n 1)
+
+ORIGINAL_STOCK=$($PSQL -c "SELECT string_agg(id || '=' || stock, ' ') FROM products WHERE id IN (${ORDER_PRODUCTS})")
+FIRST_RUN_ORDER_ID=$($PSQL -c "SELECT COALESCE(MAX(id), 0) FROM orders")
+
+# Every order POST must reach the stock reservation, not the insufficient-stock path
+reset_fixtures() {
+    $PSQL -c "DELETE FROM orders WHERE id > ${FIRST_RUN_ORDER_ID}"
+    $PSQL -c "UPDATE products SET stock = $((ORDER_REQUESTS * 2)), version = version + 1 WHERE id IN (${ORDER_PRODUCTS})"
+}
+
+restore_fixtures() {
+    $PSQL -c "DELETE FROM orders WHERE id > ${FIRST_RUN_ORDER_ID}"
+    for entry in $ORIGINAL_STOCK; do
+        $PSQL -c "UPDATE products SET stock = ${entry#*=}, version = version + 1 WHERE id = ${entry%%=*}"
+    done
+}
+trap restore_fixtures EXIT
+
+wait_for_startup() {
+    for _ in $(seq 1 60); do
+        if curl -sf "${BASE_URL}/actuator/health" > /dev/null; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo "Application did not start" >&2
+    return 1
+}
+
+run_mode() {
+    local mode=$1
+    local virtual=$2
+
+    reset_fixtures
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$virtual" \
+        --logging.level.com.ecommerce=INFO --logging.level.org.springframework.security=INFO \
+        > "$RESULTS_DIR/${mode}-app.log" 2>&1 &
+    local pid=$!
+    trap "kill $pid 2>/dev/null || true; restore_fixtures" EXIT
+    wait_for_startup
+
+    # Warm up the JIT and the connection pool before measuring
+    hey -n 2000 -c 50 "${BASE_URL}/api/products?page=0&size=20" > /dev/null
+
+    hey -n "$REQUESTS" -c "$CONCURRENCY" "${BASE_URL}/api/products?page=0&size=20" \
+        > "$RESULTS_DIR/${mode}-catalog-page.txt"
+    hey -n "$REQUESTS" -c "$CONCURRENCY" "${BASE_URL}/api/products/search?name=phone" \
+        > "$RESULTS_DIR/${mode}-catalog-search.txt"
+    hey -n "$REQUESTS" -c "$CONCURRENCY" "${BASE_URL}/api/orders" \
+        > "$RESULTS_DIR/${mode}-orders-list.txt"
+    hey -n "$ORDER_REQUESTS" -c "$CONCURRENCY" -m POST -T application/json -d "$ORDER_BODY" \
+        "${BASE_URL}/api/orders?userId=${ORDER_USER_ID}" > "$RESULTS_DIR/${mode}-orders-create.txt"
+    if grep -Eq '^[[:space:]]+\[[45][0-9]{2}\]' "$RESULTS_DIR/${mode}-orders-create.txt"; then
+        echo "Warning: some order POSTs in ${mode} mode failed; see ${mode}-orders-create.txt" >&2
+    fi
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    trap restore_fixtures EXIT
+}
+
+run_mode platform false
+run_mode virtual true
+
+printf "%-10s %-18s %12s %10s %10s\n" "mode" "endpoint" "req/s" "p50 (s)" "p99 (s)" | tee "$RESULTS_DIR/summary.txt"
+for report in "$RESULTS_DIR"/*-*.txt; do
+    name=$(basename "$report" .txt)
+    [[ "$name" == "summary" || "$name" == *-app ]] && continue
+    rps=$(awk '/Requests\/sec/ {print $2}' "$report")
+    p50=$(awk '/50% in/ {print $3}' "$report")
+    p99=$(awk '/99% in/ {print $3}' "$report")
+    printf "%-10s %-18s %12s %10s %10s\n" "${name%%-*}" "${name#*-}" "$rps" "$p50" "$p99" | tee -a "$RESULTS_DIR/summary.txt"
+done
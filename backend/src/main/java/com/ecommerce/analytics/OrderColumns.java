@@ -0,0 +1,356 @@
+package com.ecommerce.analytics;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Orders and their line items as parallel primitive arrays, ordered by (created_at, id). Items
+// sit in one flat array: itemStart[i] until itemStart[i + 1] are the items of order i. Categories
+// are dictionary-encoded. Not thread-safe; the owner keeps mutation away from aggregation.
+public class OrderColumns {
+    public static final int ANY_STATUS = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int DEFAULT_FORK_THRESHOLD = 16_384;
+    private static final int GROUP_BITS = 20;
+    private static final int MAX_GROUPS = 1 << GROUP_BITS;
+
+    private final int forkThreshold;
+
+    private int size;
+    private long[] orderId = new long[INITIAL_CAPACITY];
+    // Wall-clock seconds of created_at, read as if it were UTC
+    private long[] createdSec = new long[INITIAL_CAPACITY];
+    // year * 12 + month - 1
+    private int[] month = new int[INITIAL_CAPACITY];
+    private byte[] status = new byte[INITIAL_CAPACITY];
+    private byte[] discountFlags = new byte[INITIAL_CAPACITY];
+    private long[] totalCents = new long[INITIAL_CAPACITY];
+    private long[] discountCents = new long[INITIAL_CAPACITY];
+    private int[] itemStart = new int[INITIAL_CAPACITY + 1];
+
+    private int itemCount;
+    private int[] itemCategory = new int[INITIAL_CAPACITY];
+    private long[] itemGrossCents = new long[INITIAL_CAPACITY];
+
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private final List<String> categories = new ArrayList<>();
+
+    public OrderColumns() {
+        this(DEFAULT_FORK_THRESHOLD);
+    }
+
+    OrderColumns(int forkThreshold) {
+        this.forkThreshold = forkThreshold;
+    }
+
+    public static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static int monthIndex(LocalDateTime time) {
+        return time.getYear() * 12 + time.getMonthValue() - 1;
+    }
+
+    // Orders must arrive in (created_at, id) order; appendItem adds to the last one
+    public void appendOrder(long id, LocalDateTime createdAt, int orderStatus, int flags,
+                            long total, long discount) {
+        if (size == orderId.length) {
+            growOrders();
+        }
+        orderId[size] = id;
+        createdSec[size] = epochSecond(createdAt);
+        month[size] = monthIndex(createdAt);
+        status[size] = (byte) orderStatus;
+        discountFlags[size] = (byte) flags;
+        totalCents[size] = total;
+        discountCents[size] = discount;
+        size++;
+        itemStart[size] = itemCount;
+    }
+
+    public void appendItem(String category, long grossCents) {
+        if (size == 0) {
+            throw new IllegalStateException("Item appended before any order");
+        }
+        appendItemCode(encode(category), grossCents);
+    }
+
+    // Moves every row of a freshly loaded batch onto the end of this one
+    public void appendAll(OrderColumns batch) {
+        int[] codes = new int[batch.categories.size()];
+        for (int code = 0; code < codes.length; code++) {
+            codes[code] = encode(batch.categories.get(code));
+        }
+        for (int row = 0; row < batch.size; row++) {
+            if (size == orderId.length) {
+                growOrders();
+            }
+            orderId[size] = batch.orderId[row];
+            createdSec[size] = batch.createdSec[row];
+            month[size] = batch.month[row];
+            status[size] = batch.status[row];
+            discountFlags[size] = batch.discountFlags[row];
+            totalCents[size] = batch.totalCents[row];
+            discountCents[size] = batch.discountCents[row];
+            size++;
+            itemStart[size] = itemCount;
+            for (int item = batch.itemStart[row]; item < batch.itemStart[row + 1]; item++) {
+                appendItemCode(codes[batch.itemCategory[item]], batch.itemGrossCents[item]);
+            }
+        }
+    }
+
+    // Overwrites the mutable columns of one order; false when the order is not loaded
+    public boolean update(long id, LocalDateTime createdAt, int orderStatus, int flags, long total, long discount) {
+        long sec = epochSecond(createdAt);
+        for (int row = lowerBound(sec); row < size && createdSec[row] == sec; row++) {
+            if (orderId[row] == id) {
+                status[row] = (byte) orderStatus;
+                discountFlags[row] = (byte) flags;
+                totalCents[row] = total;
+                discountCents[row] = discount;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int itemCount() {
+        return itemCount;
+    }
+
+    public String category(int code) {
+        return categories.get(code);
+    }
+
+    // Sums orders, revenue and discount per (bucket, group) over orders created in [from, to),
+    // splitting the rows across the pool. Category groups split each order's discount across
+    // its items by their share of the gross, the last item taking the rounding remainder.
+    public List<Cell> aggregate(Granularity granularity, GroupBy groupBy, int orderStatus,
+                                LocalDateTime from, LocalDateTime to, ForkJoinPool pool) {
+        int lo = from == null ? 0 : lowerBound(epochSecond(from));
+        int hi = to == null ? size : lowerBound(epochSecond(to));
+        if (lo >= hi) {
+            return List.of();
+        }
+        Map<Long, long[]> sums = pool.invoke(new Aggregation(granularity, groupBy, orderStatus, lo, hi));
+        List<Cell> cells = new ArrayList<>(sums.size());
+        for (Map.Entry<Long, long[]> entry : sums.entrySet()) {
+            long key = entry.getKey();
+            long[] sum = entry.getValue();
+            cells.add(new Cell(key >> GROUP_BITS, (int) (key & (MAX_GROUPS - 1)), sum[0], sum[1], sum[2]));
+        }
+        cells.sort(null);
+        return cells;
+    }
+
+    private int lowerBound(long sec) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (createdSec[mid] < sec) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int encode(String category) {
+        Integer code = categoryCodes.get(category);
+        if (code == null) {
+            if (categories.size() == MAX_GROUPS) {
+                throw new IllegalStateException("More than " + MAX_GROUPS + " categories");
+            }
+            code = categories.size();
+            categories.add(category);
+            categoryCodes.put(category, code);
+        }
+        return code;
+    }
+
+    private void appendItemCode(int code, long grossCents) {
+        if (itemCount == itemCategory.length) {
+            int capacity = itemCount + (itemCount >> 1);
+            itemCategory = Arrays.copyOf(itemCategory, capacity);
+            itemGrossCents = Arrays.copyOf(itemGrossCents, capacity);
+        }
+        itemCategory[itemCount] = code;
+        itemGrossCents[itemCount] = grossCents;
+        itemCount++;
+        itemStart[size] = itemCount;
+    }
+
+    private void growOrders() {
+        int capacity = size + (size >> 1);
+        orderId = Arrays.copyOf(orderId, capacity);
+        createdSec = Arrays.copyOf(createdSec, capacity);
+        month = Arrays.copyOf(month, capacity);
+        status = Arrays.copyOf(status, capacity);
+        discountFlags = Arrays.copyOf(discountFlags, capacity);
+        totalCents = Arrays.copyOf(totalCents, capacity);
+        discountCents = Arrays.copyOf(discountCents, capacity);
+        itemStart = Arrays.copyOf(itemStart, capacity + 1);
+    }
+
+    public enum Granularity {
+        HOUR, DAY, MONTH;
+
+        public static Granularity parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+
+        long bucket(long sec, int monthIndex) {
+            return switch (this) {
+                case HOUR -> Math.floorDiv(sec, 3600);
+                case DAY -> Math.floorDiv(sec, 86_400);
+                case MONTH -> monthIndex;
+            };
+        }
+
+        public LocalDateTime start(long bucket) {
+            return switch (this) {
+                case HOUR -> LocalDateTime.ofEpochSecond(bucket * 3600, 0, ZoneOffset.UTC);
+                case DAY -> LocalDateTime.ofEpochSecond(bucket * 86_400, 0, ZoneOffset.UTC);
+                case MONTH -> LocalDate.of(Math.toIntExact(bucket / 12), (int) (bucket % 12) + 1, 1).atStartOfDay();
+            };
+        }
+    }
+
+    public enum GroupBy {
+        // group is always 0
+        NONE,
+        // group is a category code
+        CATEGORY,
+        // group is the order's DiscountType bitmask
+        DISCOUNT;
+
+        public static GroupBy parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public record Cell(long bucket, int group, long orders, long revenueCents, long discountCents)
+            implements Comparable<Cell> {
+        @Override
+        public int compareTo(Cell other) {
+            int byBucket = Long.compare(bucket, other.bucket);
+            return byBucket != 0 ? byBucket : Integer.compare(group, other.group);
+        }
+    }
+
+    private class Aggregation extends RecursiveTask<Map<Long, long[]>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Granularity granularity;
+        private final GroupBy groupBy;
+        private final int orderStatus;
+        private final int lo;
+        private final int hi;
+
+        private Map<Long, long[]> sums;
+        // Rows are in time order, so consecutive orders mostly land in the same cell
+        private long lastKey = -1;
+        private long[] lastSum;
+
+        Aggregation(Granularity granularity, GroupBy groupBy, int orderStatus, int lo, int hi) {
+            this.granularity = granularity;
+            this.groupBy = groupBy;
+            this.orderStatus = orderStatus;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Map<Long, long[]> compute() {
+            if (hi - lo > forkThreshold) {
+                int mid = (lo + hi) >>> 1;
+                Aggregation left = new Aggregation(granularity, groupBy, orderStatus, lo, mid);
+                left.fork();
+                Map<Long, long[]> right = new Aggregation(granularity, groupBy, orderStatus, mid, hi).compute();
+                return merge(left.join(), right);
+            }
+            sums = new HashMap<>();
+            for (int row = lo; row < hi; row++) {
+                if (orderStatus != ANY_STATUS && status[row] != orderStatus) {
+                    continue;
+                }
+                long bucket = granularity.bucket(createdSec[row], month[row]) << GROUP_BITS;
+                switch (groupBy) {
+                    case NONE -> add(bucket, 1, totalCents[row], discountCents[row]);
+                    case DISCOUNT -> add(bucket | discountFlags[row], 1, totalCents[row], discountCents[row]);
+                    case CATEGORY -> addItems(row, bucket);
+                }
+            }
+            return sums;
+        }
+
+        private void addItems(int row, long bucket) {
+            int first = itemStart[row];
+            int end = itemStart[row + 1];
+            long gross = 0;
+            for (int item = first; item < end; item++) {
+                gross += itemGrossCents[item];
+            }
+            long discount = discountCents[row];
+            long allocated = 0;
+            for (int item = first; item < end; item++) {
+                long share = item == end - 1 ? discount - allocated
+                        : gross == 0 ? 0 : Math.multiplyExact(discount, itemGrossCents[item]) / gross;
+                allocated += share;
+                add(bucket | itemCategory[item], firstInOrder(first, item) ? 1 : 0,
+                        itemGrossCents[item] - share, share);
+            }
+        }
+
+        // Carts are small, so a backwards scan beats a per-order set
+        private boolean firstInOrder(int first, int item) {
+            for (int earlier = first; earlier < item; earlier++) {
+                if (itemCategory[earlier] == itemCategory[item]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(long key, long orders, long revenue, long discount) {
+            if (key != lastKey) {
+                lastKey = key;
+                lastSum = sums.computeIfAbsent(key, k -> new long[3]);
+            }
+            lastSum[0] += orders;
+            lastSum[1] += revenue;
+            lastSum[2] += discount;
+        }
+
+        private Map<Long, long[]> merge(Map<Long, long[]> a, Map<Long, long[]> b) {
+            Map<Long, long[]> into = a.size() >= b.size() ? a : b;
+            Map<Long, long[]> from = into == a ? b : a;
+            for (Map.Entry<Long, long[]> entry : from.entrySet()) {
+                long[] target = into.putIfAbsent(entry.getKey(), entry.getValue());
+                if (target != null) {
+                    long[] source = entry.getValue();
+                    target[0] += source[0];
+                    target[1] += source[1];
+                    target[2] += source[2];
+                }
+            }
+            return into;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Space-Saving heavy-hitter summary (Metwally et al.) over long keys with at most `capacity`
+// counters. For every tracked key, count - error <= true count <= count. An untracked key's
+// true count is at most maxError(), which never exceeds (weight added) / capacity, so every key
+// above that share is tracked. Until a counter has been evicted all counts are exact.
+// Not thread-safe.
+public class SpaceSavingSketch {
+    private static final Comparator<Counter> SMALLEST_FIRST = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparingLong(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(SMALLEST_FIRST);
+    private long total;
+    // Largest count ever evicted; bounds every key that is not tracked
+    private long evictedFloor;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(long key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            update(counter, counter.count + weight, counter.error);
+        } else if (counters.size() < capacity) {
+            insert(new Counter(key, weight, 0));
+        } else {
+            // Take over the smallest counter; the newcomer may have been evicted before, so its
+            // earlier occurrences are bounded by the eviction floor
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            evictedFloor = Math.max(evictedFloor, smallest.count);
+            insert(new Counter(key, evictedFloor + weight, evictedFloor));
+        }
+    }
+
+    // Retracts an earlier add (e.g. an approval that was reversed). A tracked key is decremented;
+    // an untracked key's occurrences were already absorbed into other counters' error.
+    public void remove(long key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total = Math.max(0, total - weight);
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return;
+        }
+        long count = counter.count - weight;
+        if (count <= 0) {
+            // The count is an upper bound, so the key has no occurrences left
+            byCount.remove(counter);
+            counters.remove(key);
+        } else {
+            update(counter, count, Math.min(counter.error, count));
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    // Upper bound on the overcount of any reported key, and on the true count of any untracked key
+    public long maxError() {
+        return evictedFloor;
+    }
+
+    public Estimate estimate(long key) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return new Estimate(key, maxError(), maxError());
+        }
+        return new Estimate(key, counter.count, counter.error);
+    }
+
+    // Ranked by guaranteed count (count - error), so a counter that just took over an evicted
+    // slot does not outrank keys that are known to be frequent
+    public List<Estimate> top(int limit) {
+        List<Estimate> all = new ArrayList<>(counters.size());
+        for (Counter counter : counters.values()) {
+            all.add(new Estimate(counter.key, counter.count, counter.error));
+        }
+        all.sort(Comparator.comparingLong(Estimate::guaranteed).reversed()
+                .thenComparing(Comparator.comparingLong(Estimate::count).reversed())
+                .thenComparingLong(Estimate::key));
+        return all.subList(0, Math.min(limit, all.size()));
+    }
+
+    // Combines sketches over disjoint streams (Agarwal et al., "Mergeable Summaries"). A key
+    // missing from a full sketch may still have occurred there up to that sketch's maxError,
+    // which is added to both its count and its error.
+    public static SpaceSavingSketch merge(List<SpaceSavingSketch> sketches, int capacity) {
+        Map<Long, long[]> merged = new HashMap<>();
+        long total = 0;
+        long floors = 0;
+        for (SpaceSavingSketch sketch : sketches) {
+            total += sketch.total;
+            floors += sketch.maxError();
+        }
+        long absentCount = floors;
+        for (SpaceSavingSketch sketch : sketches) {
+            for (Counter counter : sketch.counters.values()) {
+                long[] sum = merged.computeIfAbsent(counter.key, key -> new long[]{absentCount, absentCount});
+                long floor = sketch.maxError();
+                sum[0] += counter.count - floor;
+                sum[1] += counter.error - floor;
+            }
+        }
+        SpaceSavingSketch result = new SpaceSavingSketch(capacity);
+        List<Map.Entry<Long, long[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                ? Long.compare(b.getValue()[0], a.getValue()[0])
+                : Long.compare(a.getKey(), b.getKey()));
+        for (Map.Entry<Long, long[]> entry : entries.subList(0, Math.min(capacity, entries.size()))) {
+            result.insert(new Counter(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        result.total = total;
+        result.evictedFloor = entries.size() > capacity ? entries.get(capacity).getValue()[0] : 0;
+        result.evictedFloor = Math.max(result.evictedFloor, absentCount);
+        return result;
+    }
+
+    private void insert(Counter counter) {
+        counters.put(counter.key, counter);
+        byCount.add(counter);
+    }
+
+    private void update(Counter counter, long count, long error) {
+        byCount.remove(counter);
+        counter.count = count;
+        counter.error = error;
+        byCount.add(counter);
+    }
+
+    public record Estimate(long key, long count, long error) {
+        public long guaranteed() {
+            return count - error;
+        }
+    }
+
+    private static class Counter {
+        private final long key;
+        private long count;
+        private long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Sliding-window heavy hitters: one SpaceSavingSketch per time bucket in a ring, merged on
+// read. The window covers the current bucket and the bucketCount - 1 before it, so it is up
+// to one bucket longer than bucketCount * bucketMillis at the edge. Not thread-safe.
+public class WindowedTopK {
+    private final long bucketMillis;
+    private final int capacity;
+    private final SpaceSavingSketch[] buckets;
+    private final long[] bucketIds;
+
+    public WindowedTopK(long bucketMillis, int bucketCount, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.capacity = capacity;
+        this.buckets = new SpaceSavingSketch[bucketCount];
+        this.bucketIds = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            bucketIds[i] = Long.MIN_VALUE;
+        }
+    }
+
+    public void add(long key, long weight, long eventMillis, long nowMillis) {
+        SpaceSavingSketch bucket = bucketFor(eventMillis, nowMillis, true);
+        if (bucket != null) {
+            bucket.add(key, weight);
+        }
+    }
+
+    public void remove(long key, long weight, long eventMillis, long nowMillis) {
+        SpaceSavingSketch bucket = bucketFor(eventMillis, nowMillis, false);
+        if (bucket != null) {
+            bucket.remove(key, weight);
+        }
+    }
+
+    public SpaceSavingSketch snapshot(long nowMillis) {
+        long current = Math.floorDiv(nowMillis, bucketMillis);
+        List<SpaceSavingSketch> live = new ArrayList<>(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != null && bucketIds[i] > current - buckets.length && bucketIds[i] <= current) {
+                live.add(buckets[i]);
+            }
+        }
+        return SpaceSavingSketch.merge(live, capacity);
+    }
+
+    private SpaceSavingSketch bucketFor(long eventMillis, long nowMillis, boolean create) {
+        long id = Math.floorDiv(eventMillis, bucketMillis);
+        long current = Math.floorDiv(nowMillis, bucketMillis);
+        if (id <= current - buckets.length || id > current) {
+            return null;
+        }
+        int slot = (int) Math.floorMod(id, (long) buckets.length);
+        if (bucketIds[slot] != id) {
+            if (!create) {
+                return null;
+            }
+            // The slot still holds a bucket that has left the window
+            buckets[slot] = new SpaceSavingSketch(capacity);
+            bucketIds[slot] = id;
+        }
+        return buckets[slot];
+    }
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.entity.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Read-through cache for single products and pages of active products
+// Single products are invalidated by id; page keys carry the catalog version, so a write
+// orphans every cached page at once and the old entries age out
+@Component
+public class ProductCache {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.product-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.product-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.product-cache.page-max-entries:500}")
+    private int pageMaxEntries;
+
+    @Value("${app.product-cache.page-ttl-seconds:60}")
+    private long pageTtlSeconds;
+
+    private BoundedCache<Long, Product> products;
+    private BoundedCache<String, Page<Product>> pages;
+
+    // Bumped by every invalidation; a load that raced with one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Counter productHits;
+    private Counter productMisses;
+    private Counter pageHits;
+    private Counter pageMisses;
+
+    @PostConstruct
+    public void init() {
+        products = new BoundedCache<>(maxEntries, Duration.ofSeconds(ttlSeconds));
+        pages = new BoundedCache<>(pageMaxEntries, Duration.ofSeconds(pageTtlSeconds));
+        productHits = meterRegistry.counter("product.cache.hits", "cache", "product");
+        productMisses = meterRegistry.counter("product.cache.misses", "cache", "product");
+        pageHits = meterRegistry.counter("product.cache.hits", "cache", "page");
+        pageMisses = meterRegistry.counter("product.cache.misses", "cache", "page");
+        FunctionCounter.builder("product.cache.evictions", products, BoundedCache::getEvictions)
+                .tag("cache", "product").register(meterRegistry);
+        FunctionCounter.builder("product.cache.evictions", pages, BoundedCache::getEvictions)
+                .tag("cache", "page").register(meterRegistry);
+        meterRegistry.gauge("product.cache.size", products, BoundedCache::size);
+    }
+
+    public Product getProduct(Long id, Supplier<Product> loader) {
+        Product cached = products.get(id);
+        if (cached != null) {
+            productHits.increment();
+            return cached;
+        }
+        productMisses.increment();
+        long seen = invalidations.get();
+        Product loaded = loader.get();
+        if (invalidations.get() == seen) {
+            products.put(id, loaded);
+        }
+        return loaded;
+    }
+
+    public Page<Product> getPage(String key, Supplier<Page<Product>> loader) {
+        Page<Product> cached = pages.get(key);
+        if (cached != null) {
+            pageHits.increment();
+            return cached;
+        }
+        pageMisses.increment();
+        long seen = invalidations.get();
+        Page<Product> loaded = loader.get();
+        if (invalidations.get() == seen) {
+            pages.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    public void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        products.invalidate(id);
+    }
+}
@@ -0,0 +1,246 @@
+package com.ecommerce.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Report results served stale-while-revalidate. A result is fresh for fresh-seconds; after that
+// it is still returned immediately for up to stale-seconds while one background task recomputes
+// it. Past the stale limit, or on first use, readers wait, and every concurrent reader of the
+// same key waits on the same computation. A failed refresh keeps the last result until it expires
+// and is not retried by readers for another fresh-seconds.
+@Component
+public class ReportCache {
+    private static final Logger logger = LoggerFactory.getLogger(ReportCache.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.report-cache.fresh-seconds:10}")
+    private long freshSeconds;
+
+    @Value("${app.report-cache.stale-seconds:300}")
+    private long staleSeconds;
+
+    @Value("${app.report-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.report-cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    private LongSupplier clock = System::nanoTime;
+
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong staleCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private ExecutorService refresher;
+    private Counter hits;
+    private Counter staleHits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threads = new AtomicInteger();
+        refresher = Executors.newFixedThreadPool(refreshThreads, runnable -> {
+            Thread thread = new Thread(runnable, "report-refresh-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        hits = meterRegistry.counter("report.cache.requests", "result", "hit");
+        staleHits = meterRegistry.counter("report.cache.requests", "result", "stale");
+        misses = meterRegistry.counter("report.cache.requests", "result", "miss");
+        meterRegistry.gauge("report.cache.hit.ratio", this, ReportCache::hitRatio);
+        meterRegistry.gauge("report.cache.size", slots, Map::size);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    // params must identify the result completely; the same (report, params) always yields the same type
+    @SuppressWarnings("unchecked")
+    public <T> T get(String report, String params, Supplier<T> compute) {
+        Key key = new Key(report, params);
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            if (slots.size() >= maxEntries) {
+                evictExpired();
+            }
+            if (slots.size() >= maxEntries) {
+                // Full of live entries: answer without caching rather than evict someone's dashboard
+                record(misses, missCount);
+                return timed(report, compute);
+            }
+            slot = slots.computeIfAbsent(key, k -> new Slot(report));
+        }
+
+        CompletableFuture<Object> pending;
+        boolean owner = false;
+        synchronized (slot) {
+            slot.compute = compute;
+            long now = clock.getAsLong();
+            long age = now - slot.computedAt;
+            if (slot.hasValue && age < TimeUnit.SECONDS.toNanos(freshSeconds)) {
+                record(hits, hitCount);
+                return (T) slot.value;
+            }
+            if (slot.hasValue && age < TimeUnit.SECONDS.toNanos(staleSeconds)) {
+                record(staleHits, staleCount);
+                if (slot.pending == null && now >= slot.retryAfter) {
+                    refreshInBackground(slot);
+                }
+                return (T) slot.value;
+            }
+            record(misses, missCount);
+            if (slot.pending == null) {
+                slot.pending = new CompletableFuture<>();
+                owner = true;
+            }
+            pending = slot.pending;
+        }
+        if (owner) {
+            recompute(slot, pending);
+        }
+        try {
+            return (T) pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Starts a background recompute of every cached result of the report; readers keep getting
+    // the current results until each one finishes. Returns how many were started.
+    public int refresh(String report) {
+        int started = 0;
+        for (Slot slot : slots.values()) {
+            if (!slot.report.equals(report)) {
+                continue;
+            }
+            synchronized (slot) {
+                if (slot.pending == null && slot.compute != null) {
+                    refreshInBackground(slot);
+                    started++;
+                }
+            }
+        }
+        return started;
+    }
+
+    public double hitRatio() {
+        long served = hitCount.get() + staleCount.get();
+        long total = served + missCount.get();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", slots.size());
+        stats.put("hits", hitCount.get());
+        stats.put("staleHits", staleCount.get());
+        stats.put("misses", missCount.get());
+        stats.put("hitRatio", hitRatio());
+        return stats;
+    }
+
+    // Caller holds the slot's lock
+    private void refreshInBackground(Slot slot) {
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        slot.pending = pending;
+        try {
+            refresher.execute(() -> recompute(slot, pending));
+        } catch (RejectedExecutionException e) {
+            slot.pending = null;
+            pending.cancel(false);
+        }
+    }
+
+    private void recompute(Slot slot, CompletableFuture<Object> pending) {
+        Supplier<?> compute;
+        synchronized (slot) {
+            compute = slot.compute;
+        }
+        try {
+            Object value = timed(slot.report, compute);
+            synchronized (slot) {
+                slot.value = value;
+                slot.hasValue = true;
+                slot.computedAt = clock.getAsLong();
+                slot.pending = null;
+            }
+            pending.complete(value);
+        } catch (RuntimeException | Error e) {
+            boolean hadValue;
+            synchronized (slot) {
+                slot.pending = null;
+                slot.retryAfter = clock.getAsLong() + TimeUnit.SECONDS.toNanos(freshSeconds);
+                hadValue = slot.hasValue;
+            }
+            if (hadValue) {
+                logger.warn("Refreshing report {} failed, serving the previous result", slot.report, e);
+            }
+            pending.completeExceptionally(e);
+        }
+    }
+
+    private <T> T timed(String report, Supplier<T> compute) {
+        return meterRegistry.timer("report.cache.recompute", "report", report).record(compute);
+    }
+
+    private void evictExpired() {
+        long now = clock.getAsLong();
+        long staleNanos = TimeUnit.SECONDS.toNanos(staleSeconds);
+        slots.values().removeIf(slot -> {
+            synchronized (slot) {
+                return slot.pending == null && (!slot.hasValue || now - slot.computedAt >= staleNanos);
+            }
+        });
+    }
+
+    private static void record(Counter counter, AtomicLong count) {
+        counter.increment();
+        count.incrementAndGet();
+    }
+
+    private record Key(String report, String params) {
+    }
+
+    // Guarded by its own monitor
+    private static final class Slot {
+        private final String report;
+        private Supplier<?> compute;
+        private Object value;
+        private boolean hasValue;
+        private long computedAt;
+        private long retryAfter;
+        private CompletableFuture<Object> pending;
+
+        Slot(String report) {
+            this.report = report;
+        }
+    }
+}
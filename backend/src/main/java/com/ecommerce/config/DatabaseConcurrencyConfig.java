@@ -0,0 +1,38 @@
+package com.ecommerce.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DatabaseConcurrencyConfig {
+
+    // app.db.max-concurrency > 0 sets the cap explicitly; when virtual threads are on and no cap
+    // is configured, the cap defaults to the Hikari pool size
+    @Bean
+    public static BeanPostProcessor databaseConcurrencyLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitingDataSource) {
+                    return bean;
+                }
+                int maxConcurrency = environment.getProperty("app.db.max-concurrency", Integer.class, 0);
+                boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+                if (maxConcurrency <= 0 && virtualThreads && dataSource instanceof HikariDataSource hikari) {
+                    maxConcurrency = hikari.getMaximumPoolSize();
+                }
+                if (maxConcurrency <= 0) {
+                    return bean;
+                }
+                long acquireTimeoutMs = environment.getProperty("app.db.acquire-timeout-ms", Long.class, 30000L);
+                return new ConcurrencyLimitingDataSource(dataSource, maxConcurrency, acquireTimeoutMs);
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.CampaignLookup;
+import com.ecommerce.entity.DiscountConfig;
+import com.ecommerce.service.CampaignService;
+import com.ecommerce.service.DiscountService;
+import com.ecommerce.service.DiscountSnapshot;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/discounts")
+@CrossOrigin(origins = "*")
+public class DiscountController {
+    @Autowired
+    private DiscountService discountService;
+
+    @Autowired
+    private CampaignService campaignService;
+
+    @GetMapping("/config")
+    public ResponseEntity<DiscountSnapshot> getConfig() {
+        return ResponseEntity.ok(discountService.getSnapshot());
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<DiscountSnapshot> refresh() {
+        return ResponseEntity.ok(discountService.refresh());
+    }
+
+    @GetMapping("/campaigns")
+    public ResponseEntity<List<DiscountConfig>> getCampaigns() {
+        return ResponseEntity.ok(campaignService.getCampaigns());
+    }
+
+    @PostMapping("/campaigns")
+    public ResponseEntity<DiscountConfig> createCampaign(@Valid @RequestBody DiscountConfig campaign) {
+        campaign.setId(null);
+        return ResponseEntity.ok(campaignService.saveCampaign(campaign));
+    }
+
+    @PutMapping("/campaigns/{id}")
+    public ResponseEntity<DiscountConfig> updateCampaign(@PathVariable Long id,
+                                                         @Valid @RequestBody DiscountConfig campaign) {
+        return ResponseEntity.ok(campaignService.updateCampaign(id, campaign));
+    }
+
+    @DeleteMapping("/campaigns/{id}")
+    public ResponseEntity<?> deactivateCampaign(@PathVariable Long id) {
+        campaignService.deactivateCampaign(id);
+        return ResponseEntity.ok().build();
+    }
+
+    // Campaigns that apply to a category and customer segment at a point in time (default now)
+    @GetMapping("/campaigns/applicable")
+    public ResponseEntity<CampaignLookup> getApplicableCampaigns(
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean frequentCustomer,
+            @RequestParam(required = false) String at) {
+        LocalDateTime time = at != null ? LocalDateTime.parse(at) : LocalDateTime.now();
+        long version = campaignService.getVersion();
+        return ResponseEntity.ok(new CampaignLookup(version,
+                campaignService.applicableCampaigns(category, frequentCustomer, time)));
+    }
+}
@@ -1,16 +1,31 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.DiscountRunSummary;
+import com.ecommerce.dto.OrderQuote;
 import com.ecommerce.dto.OrderRequest;
 import com.ecommerce.entity.Order;
+import com.ecommerce.exception.IdempotencyConflictException;
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.service.IdempotencyService;
+import com.ecommerce.service.OrderExportService;
+import com.ecommerce.service.OrderIntakeService;
 import com.ecommerce.service.OrderService;
+import com.ecommerce.service.TopCustomerService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -23,29 +38,60 @@ public class OrderController {
     @Autowired
     private com.ecommerce.service.UserService userService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestParam Long userId, @Valid @RequestBody OrderRequest request) {
-        return ResponseEntity.ok(orderService.createOrder(userId, request));
+    public ResponseEntity<Order> createOrder(
+            @RequestParam Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody OrderRequest request) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return ResponseEntity.ok(orderIntakeService.createOrder(userId, request));
+        }
+        // Idempotent requests commit directly so the order and its key share one transaction
+        try {
+            return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, userId, request,
+                    () -> orderService.createOrder(userId, request)));
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        }
     }
 
 
 
+    @PostMapping("/quote")
+    public ResponseEntity<OrderQuote> quoteOrder(
+            @RequestParam Long userId,
+            @Valid @RequestBody OrderRequest request) {
+        return ResponseEntity.ok(orderService.quote(userId, request));
+    }
+
     @PostMapping("/apply-random-discount")
     public ResponseEntity<List<Order>> applyRandomDiscount(
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "1") int count,
+            @RequestParam(required = false) Long seed) {
         LocalDateTime start = LocalDateTime.parse(startDate);
         LocalDateTime end = LocalDateTime.parse(endDate);
-        return ResponseEntity.ok(orderService.applyRandomDiscount(start, end));
+        return ResponseEntity.ok(orderService.applyRandomDiscount(start, end, count, seed));
     }
 
     @PostMapping("/apply-time-discount")
-    public ResponseEntity<List<Order>> applyTimeDiscount(
+    public ResponseEntity<DiscountRunSummary> applyTimeDiscount(
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) Long resumeAfterId) {
         LocalDateTime start = LocalDateTime.parse(startDate);
         LocalDateTime end = LocalDateTime.parse(endDate);
-        return ResponseEntity.ok(orderService.applyTimeDiscount(start, end));
+        return ResponseEntity.ok(orderService.applyTimeDiscount(start, end, resumeAfterId));
     }
 
     @GetMapping("/user/{userId}")
@@ -53,11 +99,62 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getUserOrders(userId, PageRequest.of(0, 10)));
     }
 
+    @GetMapping("/user/{userId}/cursor")
+    public ResponseEntity<CursorPage<Order>> getUserOrdersByCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(orderService.getUserOrders(userId, cursor, size, includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping
     public ResponseEntity<Page<Order>> getAllOrders() {
         return ResponseEntity.ok(orderService.getAllOrders(PageRequest.of(0, 20)));
     }
 
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<Order>> getAllOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(orderService.getAllOrders(cursor, size, includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Streams every order with order_date in [start, end) and its items, as csv or ndjson
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(defaultValue = "csv") String format) {
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            from = LocalDateTime.parse(start);
+            to = LocalDateTime.parse(end);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!to.isAfter(from) || !OrderExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        MediaType contentType = "csv".equalsIgnoreCase(format)
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + format.toLowerCase() + "\"")
+                .body(out -> orderExportService.exportOrders(out, from, to, format));
+    }
+
     @PutMapping("/{orderId}/status")
     public ResponseEntity<Order> updateOrderStatus(
             @PathVariable Long orderId,
@@ -71,9 +168,15 @@ public class OrderController {
         }
     }
 
+    // window: all (default), 24h or 30d
     @GetMapping("/frequent-customers")
-    public ResponseEntity<java.util.List<Object[]>> getFrequentCustomers() {
-        return ResponseEntity.ok(orderService.getTopCustomers());
+    public ResponseEntity<java.util.List<Object[]>> getFrequentCustomers(
+            @RequestParam(defaultValue = "all") String window) {
+        try {
+            return ResponseEntity.ok(orderService.getTopCustomers(TopCustomerService.Window.parse(window)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/{orderId}")
@@ -81,4 +184,10 @@ public class OrderController {
         orderService.deleteOrder(orderId, userId);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    // Thrown from every order path (batched, idempotent or direct); the client gets each short line
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<List<InsufficientStockException.Shortage>> handleInsufficientStock(InsufficientStockException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getShortages());
+    }
+}
@@ -1,17 +1,29 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.CatalogImportReport;
+import com.ecommerce.dto.CursorPage;
 import com.ecommerce.dto.ProductRequest;
 import com.ecommerce.entity.Product;
+import com.ecommerce.service.CatalogService;
 import com.ecommerce.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api/products")
@@ -20,17 +32,75 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private CatalogService catalogService;
+
+    // Listing ETags come from the catalog-wide version, so a revalidation is answered
+    // without a query; any product write or stock change moves every listing's ETag
     @GetMapping
     public ResponseEntity<Page<Product>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        String etag = listingEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
         Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(productService.getAllProducts(pageable));
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                .body(productService.getAllProducts(pageable));
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<Product>> getProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(productService.getActiveProducts(cursor, size, includeTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
+    // Served from the product cache when possible; the ETag is the entity version
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        return ResponseEntity.ok(productService.getProductById(id));
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest webRequest) {
+        Product product = productService.getProductById(id);
+        String etag = "\"p" + product.getId() + "-v" + product.getVersion() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(product);
+    }
+
+    // Body is NDJSON (one product per line) or CSV with a header line; rows are upserted by sku
+    @PostMapping("/import")
+    public ResponseEntity<CatalogImportReport> importCatalog(
+            InputStream body,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "0") long resumeAfterLine) throws IOException {
+        try {
+            return ResponseEntity.ok(catalogService.importCatalog(body, format, resumeAfterLine));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(@RequestParam(defaultValue = "ndjson") String format) {
+        MediaType contentType;
+        if ("csv".equalsIgnoreCase(format)) {
+            contentType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            contentType = MediaType.APPLICATION_NDJSON;
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog." + format.toLowerCase() + "\"")
+                .body(out -> catalogService.exportCatalog(out, format));
     }
 
     @PostMapping
@@ -56,9 +126,15 @@ public class ProductController {
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        String etag = listingEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
         Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(productService.searchProducts(name, category, minPrice, maxPrice, pageable));
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                .body(productService.searchProducts(name, category, minPrice, maxPrice, pageable));
     }
 
     @GetMapping("/top-selling")
@@ -66,8 +142,19 @@ public class ProductController {
         return ResponseEntity.ok(productService.getTopSellingProducts());
     }
 
+    // Streams the whole active catalog; rows are read and serialized one at a time
     @GetMapping("/active")
-    public ResponseEntity<java.util.List<Product>> getActiveProducts() {
-        return ResponseEntity.ok(productService.getActiveProducts());
+    public ResponseEntity<StreamingResponseBody> getActiveProducts() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productService::writeActiveProducts);
+    }
+
+    private String listingEtag() {
+        return "\"c" + productService.getListingVersion() + "\"";
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
     }
-}
\ No newline at end of file
+}
@@ -1,40 +1,118 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.analytics.OrderColumns;
+import com.ecommerce.cache.ReportCache;
+import com.ecommerce.dto.RevenueBucket;
+import com.ecommerce.entity.Order;
 import com.ecommerce.entity.Product;
+import com.ecommerce.service.OrderAnalyticsService;
 import com.ecommerce.service.OrderService;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.service.TopCustomerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/reports")
 @CrossOrigin(origins = "*", maxAge = 3600)
 
 public class ReportController {
+    private static final String ACTIVE_PRODUCTS = "products-active";
+    private static final String TOP_SELLING = "top-selling";
+    private static final String FREQUENT_CUSTOMERS = "frequent-customers";
+    private static final String REVENUE = "revenue";
+    private static final Set<String> REPORTS = Set.of(ACTIVE_PRODUCTS, TOP_SELLING, FREQUENT_CUSTOMERS, REVENUE);
+
     @Autowired
     private ProductService productService;
 
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private ReportCache reportCache;
+
     @GetMapping("/products/active")
     public ResponseEntity<Page<Product>> getActiveProducts() {
-        return ResponseEntity.ok(productService.getAllProducts(PageRequest.of(0, 100)));
+        return ResponseEntity.ok(reportCache.get(ACTIVE_PRODUCTS, "",
+                () -> productService.getAllProducts(PageRequest.of(0, 100))));
     }
 
     @GetMapping("/products/top-selling")
     public ResponseEntity<List<Object[]>> getTopSellingProducts() {
-        return ResponseEntity.ok(productService.getTopSellingProducts());
+        return ResponseEntity.ok(reportCache.get(TOP_SELLING, "", () -> productService.getTopSellingProducts()));
     }
 
     @GetMapping("/customers/frequent")
-    public ResponseEntity<List<Object[]>> getFrequentCustomers() {
-        return ResponseEntity.ok(orderService.getTopCustomers());
+    public ResponseEntity<List<Object[]>> getFrequentCustomers(@RequestParam(defaultValue = "all") String window) {
+        try {
+            TopCustomerService.Window parsed = TopCustomerService.Window.parse(window);
+            return ResponseEntity.ok(reportCache.get(FREQUENT_CUSTOMERS, parsed.name(),
+                    () -> orderService.getTopCustomers(parsed)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // granularity: hour, day or month; groupBy: none, category or discount; status: an order status or "any"
+    @GetMapping("/revenue")
+    public ResponseEntity<List<RevenueBucket>> getRevenue(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(defaultValue = "none") String groupBy,
+            @RequestParam(defaultValue = "APPROVED") String status,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            OrderColumns.Granularity parsedGranularity = OrderColumns.Granularity.parse(granularity);
+            OrderColumns.GroupBy parsedGroupBy = OrderColumns.GroupBy.parse(groupBy);
+            Order.OrderStatus orderStatus = "any".equalsIgnoreCase(status)
+                    ? null : Order.OrderStatus.valueOf(status.toUpperCase());
+            LocalDateTime start = from == null ? null : LocalDateTime.parse(from);
+            LocalDateTime end = to == null ? null : LocalDateTime.parse(to);
+            String params = parsedGranularity + "|" + parsedGroupBy + "|" + orderStatus + "|" + start + "|" + end;
+            return ResponseEntity.ok(reportCache.get(REVENUE, params,
+                    () -> orderAnalyticsService.revenue(parsedGranularity, parsedGroupBy, orderStatus, start, end)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/revenue/status")
+    public ResponseEntity<Map<String, Object>> getRevenueStatus() {
+        return ResponseEntity.ok(orderAnalyticsService.getStatus());
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(reportCache.getStats());
+    }
+
+    // Recomputes every cached result of one report in the background; the current ones are served meanwhile
+    @PostMapping("/{report}/refresh")
+    public ResponseEntity<Map<String, Object>> refreshReport(@PathVariable String report) {
+        if (!REPORTS.contains(report)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("report", report);
+        result.put("refreshing", reportCache.refresh(report));
+        return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.pricing.Campaign;
+
+import java.util.List;
+
+public class CampaignLookup {
+    private long indexVersion;
+    private List<Campaign> campaigns;
+    private int basisPoints;
+
+    public CampaignLookup() {}
+
+    public CampaignLookup(long indexVersion, List<Campaign> campaigns) {
+        this.indexVersion = indexVersion;
+        this.campaigns = campaigns;
+        for (Campaign campaign : campaigns) {
+            this.basisPoints += campaign.basisPoints();
+        }
+    }
+
+    public long getIndexVersion() { return indexVersion; }
+    public void setIndexVersion(long indexVersion) { this.indexVersion = indexVersion; }
+
+    public List<Campaign> getCampaigns() { return campaigns; }
+    public void setCampaigns(List<Campaign> campaigns) { this.campaigns = campaigns; }
+
+    public int getBasisPoints() { return basisPoints; }
+    public void setBasisPoints(int basisPoints) { this.basisPoints = basisPoints; }
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CatalogImportReport {
+    // Only the first errors are kept; rowsRejected still counts all of them
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long linesRead;
+    private long rowsUpserted;
+    private long rowsRejected;
+    private int chunks;
+    // Pass back as resumeAfterLine to continue an interrupted import
+    private long lastCommittedLine;
+    private boolean completed;
+    private String failure;
+    private List<RowError> errors = new ArrayList<>();
+
+    public CatalogImportReport() {}
+
+    public CatalogImportReport(long resumeAfterLine) {
+        this.lastCommittedLine = resumeAfterLine;
+    }
+
+    public void recordLine() {
+        this.linesRead++;
+    }
+
+    public void recordError(long line, String sku, String message) {
+        this.rowsRejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, sku, message));
+        }
+    }
+
+    public void recordChunk(int upserted, long lastLine) {
+        this.rowsUpserted += upserted;
+        this.chunks++;
+        this.lastCommittedLine = lastLine;
+    }
+
+    public long getLinesRead() { return linesRead; }
+    public void setLinesRead(long linesRead) { this.linesRead = linesRead; }
+
+    public long getRowsUpserted() { return rowsUpserted; }
+    public void setRowsUpserted(long rowsUpserted) { this.rowsUpserted = rowsUpserted; }
+
+    public long getRowsRejected() { return rowsRejected; }
+    public void setRowsRejected(long rowsRejected) { this.rowsRejected = rowsRejected; }
+
+    public int getChunks() { return chunks; }
+    public void setChunks(int chunks) { this.chunks = chunks; }
+
+    public long getLastCommittedLine() { return lastCommittedLine; }
+    public void setLastCommittedLine(long lastCommittedLine) { this.lastCommittedLine = lastCommittedLine; }
+
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+
+    public String getFailure() { return failure; }
+    public void setFailure(String failure) { this.failure = failure; }
+
+    public List<RowError> getErrors() { return errors; }
+    public void setErrors(List<RowError> errors) { this.errors = errors; }
+
+    public static class RowError {
+        private long line;
+        private String sku;
+        private String message;
+
+        public RowError() {}
+
+        public RowError(long line, String sku, String message) {
+            this.line = line;
+            this.sku = sku;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public void setLine(long line) { this.line = line; }
+
+        public String getSku() { return sku; }
+        public void setSku(String sku) { this.sku = sku; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
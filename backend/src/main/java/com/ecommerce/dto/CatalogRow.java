@@ -0,0 +1,66 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Product;
+import jakarta.validation.constraints.*;
+import java.math.BigDecimal;
+
+// One product in a bulk import or export file, keyed by sku
+public class CatalogRow {
+    @NotBlank
+    @Size(max = 64)
+    private String sku;
+
+    @NotBlank
+    @Size(max = 100)
+    private String name;
+
+    @Size(max = 500)
+    private String description;
+
+    @NotNull
+    @DecimalMin(value = "0.0", inclusive = false)
+    @Digits(integer = 10, fraction = 2)
+    private BigDecimal price;
+
+    @NotBlank
+    @Size(max = 50)
+    private String category;
+
+    @NotNull
+    @Min(0)
+    private Integer stock;
+
+    public CatalogRow() {}
+
+    public CatalogRow(String sku, String name, String description, BigDecimal price, String category, Integer stock) {
+        this.sku = sku;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.category = category;
+        this.stock = stock;
+    }
+
+    public static CatalogRow from(Product product) {
+        return new CatalogRow(product.getSku(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getCategory(), product.getStock());
+    }
+
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public Integer getStock() { return stock; }
+    public void setStock(Integer stock) { this.stock = stock; }
+}
@@ -0,0 +1,50 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.pricing.Money;
+
+import java.math.BigDecimal;
+
+public class DiscountRunSummary {
+    private long ordersScanned;
+    private long ordersDiscounted;
+    private int chunks;
+    private Money totalDiscount = Money.ZERO;
+    // Pass back as resumeAfterId to continue an interrupted run
+    private Long lastOrderId;
+    private boolean completed;
+
+    public DiscountRunSummary() {}
+
+    public DiscountRunSummary(Long resumeAfterId) {
+        this.lastOrderId = resumeAfterId;
+    }
+
+    public void recordChunk(int scanned, Long lastOrderId) {
+        this.ordersScanned += scanned;
+        this.chunks++;
+        this.lastOrderId = lastOrderId;
+    }
+
+    public void recordDiscount(Money discount) {
+        this.ordersDiscounted++;
+        this.totalDiscount = this.totalDiscount.plus(discount);
+    }
+
+    public long getOrdersScanned() { return ordersScanned; }
+    public void setOrdersScanned(long ordersScanned) { this.ordersScanned = ordersScanned; }
+
+    public long getOrdersDiscounted() { return ordersDiscounted; }
+    public void setOrdersDiscounted(long ordersDiscounted) { this.ordersDiscounted = ordersDiscounted; }
+
+    public int getChunks() { return chunks; }
+    public void setChunks(int chunks) { this.chunks = chunks; }
+
+    public BigDecimal getTotalDiscount() { return totalDiscount.toBigDecimal(); }
+    public void setTotalDiscount(BigDecimal totalDiscount) { this.totalDiscount = Money.of(totalDiscount); }
+
+    public Long getLastOrderId() { return lastOrderId; }
+    public void setLastOrderId(Long lastOrderId) { this.lastOrderId = lastOrderId; }
+
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+}
@@ -0,0 +1,84 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Price of a cart as createOrder would charge it right now; nothing is reserved or stored
+public class OrderQuote {
+    private List<Line> items = new ArrayList<>();
+    private BigDecimal subtotal;
+    private BigDecimal discountApplied;
+    private BigDecimal totalAmount;
+    private String discountType;
+    private LocalDateTime pricedAt;
+
+    public OrderQuote() {}
+
+    public OrderQuote(Order priced) {
+        for (OrderItem item : priced.getItems()) {
+            items.add(new Line(item.getProductId(), item.getProductName(), item.getQuantity(),
+                    item.getUnitPrice(), item.getSubtotal()));
+        }
+        this.totalAmount = priced.getTotalAmount();
+        this.discountApplied = priced.getDiscountApplied();
+        this.subtotal = totalAmount.add(discountApplied);
+        this.discountType = priced.getDiscountType();
+        this.pricedAt = priced.getOrderDate();
+    }
+
+    public List<Line> getItems() { return items; }
+    public void setItems(List<Line> items) { this.items = items; }
+
+    public BigDecimal getSubtotal() { return subtotal; }
+    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+
+    public BigDecimal getDiscountApplied() { return discountApplied; }
+    public void setDiscountApplied(BigDecimal discountApplied) { this.discountApplied = discountApplied; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+
+    public String getDiscountType() { return discountType; }
+    public void setDiscountType(String discountType) { this.discountType = discountType; }
+
+    public LocalDateTime getPricedAt() { return pricedAt; }
+    public void setPricedAt(LocalDateTime pricedAt) { this.pricedAt = pricedAt; }
+
+    public static class Line {
+        private Long productId;
+        private String productName;
+        private Integer quantity;
+        private BigDecimal unitPrice;
+        private BigDecimal subtotal;
+
+        public Line() {}
+
+        public Line(Long productId, String productName, Integer quantity, BigDecimal unitPrice, BigDecimal subtotal) {
+            this.productId = productId;
+            this.productName = productName;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.subtotal = subtotal;
+        }
+
+        public Long getProductId() { return productId; }
+        public void setProductId(Long productId) { this.productId = productId; }
+
+        public String getProductName() { return productName; }
+        public void setProductName(String productName) { this.productName = productName; }
+
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+        public BigDecimal getUnitPrice() { return unitPrice; }
+        public void setUnitPrice(BigDecimal unitPrice) { this.unitPrice = unitPrice; }
+
+        public BigDecimal getSubtotal() { return subtotal; }
+        public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One time bucket of /api/reports/revenue; group is the category or discount combination when grouped
+public class RevenueBucket {
+    private LocalDateTime bucketStart;
+    private String group;
+    private long orders;
+    private BigDecimal revenue;
+    private BigDecimal discount;
+
+    public RevenueBucket() {}
+
+    public RevenueBucket(LocalDateTime bucketStart, String group, long orders, BigDecimal revenue, BigDecimal discount) {
+        this.bucketStart = bucketStart;
+        this.group = group;
+        this.orders = orders;
+        this.revenue = revenue;
+        this.discount = discount;
+    }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+
+    public long getOrders() { return orders; }
+    public void setOrders(long orders) { this.orders = orders; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+    public BigDecimal getDiscount() { return discount; }
+    public void setDiscount(BigDecimal discount) { this.discount = discount; }
+}
@@ -42,6 +42,27 @@ public class DiscountConfig {
     @Column(name = "is_active")
     private Boolean isActive = true;
 
+    // Campaign fields: a row with a category or a customer segment is a campaign and is
+    // served by CampaignService; a row with neither is the global config
+    @Size(max = 100)
+    @Column(name = "name")
+    private String name;
+
+    @Size(max = 50)
+    @Column(name = "category")
+    private String category;
+
+    @Pattern(regexp = "FREQUENT|REGULAR")
+    @Column(name = "customer_segment")
+    private String customerSegment;
+
+    @Column(name = "priority")
+    private Integer priority = 0;
+
+    // An exclusive campaign that wins on priority is applied alone
+    @Column(name = "is_exclusive")
+    private Boolean isExclusive = false;
+
     public DiscountConfig() {}
 
     public DiscountConfig(LocalDateTime startDate, LocalDateTime endDate) {
@@ -71,6 +92,25 @@ public class DiscountConfig {
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
 
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public String getCustomerSegment() { return customerSegment; }
+    public void setCustomerSegment(String customerSegment) { this.customerSegment = customerSegment; }
+
+    public Integer getPriority() { return priority; }
+    public void setPriority(Integer priority) { this.priority = priority; }
+
+    public Boolean getIsExclusive() { return isExclusive; }
+    public void setIsExclusive(Boolean isExclusive) { this.isExclusive = isExclusive; }
+
+    public boolean isCampaign() {
+        return category != null || customerSegment != null;
+    }
+
     public boolean isWithinDiscountPeriod(LocalDateTime dateTime) {
         return isActive && dateTime.isAfter(startDate) && dateTime.isBefore(endDate);
     }
@@ -3,6 +3,8 @@ package com.ecommerce.entity;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -16,7 +18,8 @@ import java.util.List;
 @EntityListeners(AuditingEntityListener.class)
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -32,6 +35,11 @@ public class Order {
     @Column(name = "discount_applied")
     private BigDecimal discountApplied = BigDecimal.ZERO;
 
+    // Bitmask of DiscountType; null only on rows written before the column existed
+    @Column(name = "discount_flags")
+    private Integer discountFlags;
+
+    // Legacy comma-joined form, kept in sync with discountFlags for older readers
     @Column(name = "discount_type")
     private String discountType; // "RANDOM_50", "TIME_10", "FREQUENT_5"
 
@@ -75,7 +83,19 @@ public class Order {
     public void setDiscountApplied(BigDecimal discountApplied) { this.discountApplied = discountApplied; }
 
     public String getDiscountType() { return discountType; }
-    public void setDiscountType(String discountType) { this.discountType = discountType; }
+    public void setDiscountType(String discountType) {
+        setDiscountFlags(DiscountType.parse(discountType));
+    }
+
+    public int getDiscountFlags() { return discountFlags == null ? 0 : discountFlags; }
+    public void setDiscountFlags(int discountFlags) {
+        this.discountFlags = discountFlags;
+        this.discountType = DiscountType.format(discountFlags);
+    }
+
+    public boolean hasDiscount(DiscountType type) {
+        return (getDiscountFlags() & type.bit()) != 0;
+    }
 
     public LocalDateTime getOrderDate() { return orderDate; }
     public void setOrderDate(LocalDateTime orderDate) { this.orderDate = orderDate; }
@@ -91,7 +111,69 @@ public class Order {
     public Boolean getIsVisible() { return isVisible; }
     public void setIsVisible(Boolean isVisible) { this.isVisible = isVisible; }
 
+    @PostLoad
+    private void readLegacyDiscountType() {
+        if (discountFlags == null) {
+            discountFlags = DiscountType.parse(discountType);
+        }
+    }
+
     public enum OrderStatus {
         PENDING, APPROVED, REJECTED, DELETED
     }
+
+    public enum DiscountType {
+        FREQUENT_5, TIME_10, RANDOM_50;
+
+        public static final int COMBINATIONS = 1 << values().length;
+
+        private static final Logger logger = LoggerFactory.getLogger(DiscountType.class);
+
+        // Legacy strings for every combination, so formatting never builds a string
+        private static final String[] FORMATTED = new String[COMBINATIONS];
+
+        static {
+            DiscountType[] types = values();
+            for (int flags = 1; flags < COMBINATIONS; flags++) {
+                StringBuilder joined = new StringBuilder();
+                for (DiscountType type : types) {
+                    if ((flags & type.bit()) != 0) {
+                        if (joined.length() > 0) {
+                            joined.append(',');
+                        }
+                        joined.append(type.name());
+                    }
+                }
+                FORMATTED[flags] = joined.toString();
+            }
+        }
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+
+        public static String format(int flags) {
+            return FORMATTED[flags & (COMBINATIONS - 1)];
+        }
+
+        public static int parse(String legacy) {
+            if (legacy == null || legacy.isBlank()) {
+                return 0;
+            }
+            int flags = 0;
+            for (String name : legacy.split(",")) {
+                String trimmed = name.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                try {
+                    flags |= valueOf(trimmed).bit();
+                } catch (IllegalArgumentException e) {
+                    // A name this release does not know must not make the order unloadable
+                    logger.warn("Ignoring unknown discount type '{}' in '{}'", trimmed, legacy);
+                }
+            }
+            return flags;
+        }
+    }
 }
\ No newline at end of file
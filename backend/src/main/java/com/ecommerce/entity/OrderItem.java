@@ -1,5 +1,6 @@
 package com.ecommerce.entity;
 
+import com.ecommerce.pricing.Money;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
@@ -10,7 +11,8 @@ import java.math.BigDecimal;
 @Table(name = "order_items")
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -72,6 +74,10 @@ public class OrderItem {
     public void setProductName(String productName) { this.productName = productName; }
 
     public BigDecimal getSubtotal() {
-        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        return subtotal().toBigDecimal();
+    }
+
+    public Money subtotal() {
+        return Money.of(unitPrice).times(quantity);
     }
 }
\ No newline at end of file
@@ -17,6 +17,11 @@ public class Product {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // External catalog key used by bulk import; optional for products created one at a time
+    @Size(max = 64)
+    @Column(unique = true, length = 64)
+    private String sku;
+
     @NotBlank
     @Size(max = 100)
     private String name;
@@ -40,6 +45,10 @@ public class Product {
     @Column(name = "is_active")
     private Boolean isActive = true;
 
+    // Bumped by every write, including the JDBC stock and import statements; also the ETag
+    @Version
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -62,6 +71,9 @@ public class Product {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
@@ -80,6 +92,9 @@ public class Product {
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Units sold per product across APPROVED orders; maintained by SalesRollupService
+@Entity
+@Table(name = "product_sales")
+public class ProductSales {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "product_name", length = 100)
+    private String productName;
+
+    @Column(name = "quantity_sold", nullable = false)
+    private Long quantitySold;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public ProductSales() {}
+
+    public ProductSales(Long productId, String productName, Long quantitySold) {
+        this.productId = productId;
+        this.productName = productName;
+        this.quantitySold = quantitySold;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+
+    public Long getQuantitySold() { return quantitySold; }
+    public void setQuantitySold(Long quantitySold) { this.quantitySold = quantitySold; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.exception;
+
+public class IdempotencyConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyConflictException(String key) {
+        super("Idempotency-Key " + key + " was already used with a different request");
+    }
+}
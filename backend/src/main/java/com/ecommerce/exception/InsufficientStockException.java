@@ -0,0 +1,43 @@
+package com.ecommerce.exception;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class InsufficientStockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Shortage> shortages;
+
+    public InsufficientStockException(List<Shortage> shortages) {
+        super("No hay stock suficiente para: " + shortages.stream()
+                .map(Shortage::toString)
+                .collect(Collectors.joining(", ")));
+        this.shortages = List.copyOf(shortages);
+    }
+
+    public List<Shortage> getShortages() { return shortages; }
+
+    public static class Shortage {
+        private final Long productId;
+        private final String productName;
+        private final int requested;
+        private final int available;
+
+        public Shortage(Long productId, String productName, int requested, int available) {
+            this.productId = productId;
+            this.productName = productName;
+            this.requested = requested;
+            this.available = available;
+        }
+
+        public Long getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public int getRequested() { return requested; }
+        public int getAvailable() { return available; }
+
+        @Override
+        public String toString() {
+            return productName + " (id " + productId + ", solicitado: " + requested + ", disponible: " + available + ")";
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ecommerce.pricing;
+
+import java.util.Comparator;
+
+// Immutable campaign as held by CampaignIndex. A null category or customerSegment matches
+// everything; the campaign is active for startMillis < t < endMillis.
+public record Campaign(Long id, String name, String category, String customerSegment,
+                       int priority, boolean exclusive, int basisPoints,
+                       long startMillis, long endMillis) {
+
+    public static final String SEGMENT_FREQUENT = "FREQUENT";
+    public static final String SEGMENT_REGULAR = "REGULAR";
+
+    // Highest priority first; newer campaigns win ties
+    public static final Comparator<Campaign> PRECEDENCE = Comparator
+            .comparingInt(Campaign::priority).reversed()
+            .thenComparing(Campaign::id, Comparator.reverseOrder());
+
+    public boolean matches(String category, boolean frequentCustomer) {
+        return (this.category == null || this.category.equalsIgnoreCase(category))
+                && (customerSegment == null
+                    || customerSegment.equals(frequentCustomer ? SEGMENT_FREQUENT : SEGMENT_REGULAR));
+    }
+}
@@ -0,0 +1,212 @@
+package com.ecommerce.pricing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable sorted-boundary index over campaign periods. The timeline is cut at every campaign
+// start and end; each slice holds the campaigns active throughout it, already in precedence
+// order, so "what applies at t" is a binary search plus a scan of the few campaigns in that
+// slice. with() and without() return a new index that shares every untouched slice.
+public final class CampaignIndex {
+    public static final CampaignIndex EMPTY =
+            new CampaignIndex(0, new long[0], new Campaign[][]{new Campaign[0]}, Map.of());
+
+    private final long version;
+    // Sorted, distinct; slice i covers [boundaries[i - 1], boundaries[i])
+    private final long[] boundaries;
+    private final Campaign[][] slices;
+    private final Map<Long, Campaign> byId;
+
+    private CampaignIndex(long version, long[] boundaries, Campaign[][] slices, Map<Long, Campaign> byId) {
+        this.version = version;
+        this.boundaries = boundaries;
+        this.slices = slices;
+        this.byId = byId;
+    }
+
+    public static CampaignIndex build(long version, Collection<Campaign> campaigns) {
+        long[] points = new long[campaigns.size() * 2];
+        int count = 0;
+        Map<Long, Campaign> byId = new HashMap<>();
+        for (Campaign campaign : campaigns) {
+            if (isEmpty(campaign)) {
+                continue;
+            }
+            points[count++] = from(campaign);
+            points[count++] = campaign.endMillis();
+            byId.put(campaign.id(), campaign);
+        }
+        long[] boundaries = Arrays.stream(points, 0, count).sorted().distinct().toArray();
+
+        List<List<Campaign>> building = new ArrayList<>(boundaries.length + 1);
+        for (int i = 0; i <= boundaries.length; i++) {
+            building.add(new ArrayList<>());
+        }
+        for (Campaign campaign : byId.values()) {
+            int last = sliceOf(boundaries, campaign.endMillis());
+            for (int i = sliceOf(boundaries, from(campaign)); i < last; i++) {
+                building.get(i).add(campaign);
+            }
+        }
+        Campaign[][] slices = new Campaign[building.size()][];
+        for (int i = 0; i < slices.length; i++) {
+            List<Campaign> slice = building.get(i);
+            slice.sort(Campaign.PRECEDENCE);
+            slices[i] = slice.toArray(new Campaign[0]);
+        }
+        return new CampaignIndex(version, boundaries, slices, Map.copyOf(byId));
+    }
+
+    // Campaigns active at t in precedence order, before stacking rules
+    public List<Campaign> activeAt(long t) {
+        return Collections.unmodifiableList(Arrays.asList(slices[sliceOf(boundaries, t)]));
+    }
+
+    // Stacking: the highest-precedence matching campaign wins. If it is exclusive it applies
+    // alone; otherwise every matching non-exclusive campaign stacks.
+    public List<Campaign> applicable(long t, String category, boolean frequentCustomer) {
+        List<Campaign> applied = new ArrayList<>();
+        for (Campaign campaign : slices[sliceOf(boundaries, t)]) {
+            if (!campaign.matches(category, frequentCustomer)) {
+                continue;
+            }
+            if (campaign.exclusive()) {
+                if (applied.isEmpty()) {
+                    applied.add(campaign);
+                    return applied;
+                }
+                continue;
+            }
+            applied.add(campaign);
+        }
+        return applied;
+    }
+
+    // Same rules as applicable(), summed without building a list
+    public int basisPoints(long t, String category, boolean frequentCustomer) {
+        int total = 0;
+        boolean any = false;
+        for (Campaign campaign : slices[sliceOf(boundaries, t)]) {
+            if (!campaign.matches(category, frequentCustomer)) {
+                continue;
+            }
+            if (campaign.exclusive()) {
+                if (!any) {
+                    return campaign.basisPoints();
+                }
+                continue;
+            }
+            any = true;
+            total += campaign.basisPoints();
+        }
+        return total;
+    }
+
+    // Adds or replaces a campaign, splitting only the slices at its new start and end
+    public CampaignIndex with(long newVersion, Campaign campaign) {
+        CampaignIndex base = byId.containsKey(campaign.id()) ? without(newVersion, campaign.id()) : this;
+        if (isEmpty(campaign)) {
+            return new CampaignIndex(newVersion, base.boundaries, base.slices, base.byId);
+        }
+        long[] newBoundaries = base.boundaries;
+        Campaign[][] newSlices = base.slices;
+        for (long point : new long[]{from(campaign), campaign.endMillis()}) {
+            int position = Arrays.binarySearch(newBoundaries, point);
+            if (position >= 0) {
+                continue;
+            }
+            int insertAt = -position - 1;
+            long[] splitBoundaries = new long[newBoundaries.length + 1];
+            System.arraycopy(newBoundaries, 0, splitBoundaries, 0, insertAt);
+            splitBoundaries[insertAt] = point;
+            System.arraycopy(newBoundaries, insertAt, splitBoundaries, insertAt + 1, newBoundaries.length - insertAt);
+            // Both halves of the split slice start out sharing the same campaigns
+            Campaign[][] splitSlices = new Campaign[newSlices.length + 1][];
+            System.arraycopy(newSlices, 0, splitSlices, 0, insertAt + 1);
+            System.arraycopy(newSlices, insertAt, splitSlices, insertAt + 1, newSlices.length - insertAt);
+            newBoundaries = splitBoundaries;
+            newSlices = splitSlices;
+        }
+        if (newSlices == base.slices) {
+            newSlices = base.slices.clone();
+        }
+        int last = sliceOf(newBoundaries, campaign.endMillis());
+        for (int i = sliceOf(newBoundaries, from(campaign)); i < last; i++) {
+            newSlices[i] = insert(newSlices[i], campaign);
+        }
+        Map<Long, Campaign> newById = new HashMap<>(base.byId);
+        newById.put(campaign.id(), campaign);
+        return new CampaignIndex(newVersion, newBoundaries, newSlices, Map.copyOf(newById));
+    }
+
+    // Removes a campaign from the slices it covered. Boundaries are left in place; a full
+    // build() compacts them.
+    public CampaignIndex without(long newVersion, Long campaignId) {
+        Campaign campaign = byId.get(campaignId);
+        if (campaign == null) {
+            return new CampaignIndex(newVersion, boundaries, slices, byId);
+        }
+        Campaign[][] newSlices = slices.clone();
+        int last = sliceOf(boundaries, campaign.endMillis());
+        for (int i = sliceOf(boundaries, from(campaign)); i < last; i++) {
+            newSlices[i] = remove(newSlices[i], campaignId);
+        }
+        Map<Long, Campaign> newById = new HashMap<>(byId);
+        newById.remove(campaignId);
+        return new CampaignIndex(newVersion, boundaries, newSlices, Map.copyOf(newById));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public int boundaryCount() {
+        return boundaries.length;
+    }
+
+    // Index of the slice containing t; a boundary belongs to the slice it starts
+    private static int sliceOf(long[] boundaries, long t) {
+        int position = Arrays.binarySearch(boundaries, t);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    // Periods are open at the start, like DiscountConfig.isWithinDiscountPeriod
+    private static long from(Campaign campaign) {
+        return campaign.startMillis() + 1;
+    }
+
+    private static boolean isEmpty(Campaign campaign) {
+        return from(campaign) >= campaign.endMillis();
+    }
+
+    private static Campaign[] insert(Campaign[] slice, Campaign campaign) {
+        int position = Arrays.binarySearch(slice, campaign, Campaign.PRECEDENCE);
+        int insertAt = position >= 0 ? position : -position - 1;
+        Campaign[] result = new Campaign[slice.length + 1];
+        System.arraycopy(slice, 0, result, 0, insertAt);
+        result[insertAt] = campaign;
+        System.arraycopy(slice, insertAt, result, insertAt + 1, slice.length - insertAt);
+        return result;
+    }
+
+    private static Campaign[] remove(Campaign[] slice, Long campaignId) {
+        for (int i = 0; i < slice.length; i++) {
+            if (slice[i].id().equals(campaignId)) {
+                Campaign[] result = new Campaign[slice.length - 1];
+                System.arraycopy(slice, 0, result, 0, i);
+                System.arraycopy(slice, i + 1, result, i, slice.length - i - 1);
+                return result;
+            }
+        }
+        return slice;
+    }
+}
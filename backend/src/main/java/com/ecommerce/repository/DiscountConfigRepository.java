@@ -3,12 +3,23 @@ package com.ecommerce.repository;
 import com.ecommerce.entity.DiscountConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DiscountConfigRepository extends JpaRepository<DiscountConfig, Long> {
-    @Query("SELECT dc FROM DiscountConfig dc WHERE dc.isActive = true ORDER BY dc.id DESC")
-    Optional<DiscountConfig> findActiveDiscountConfig();
+    // Newest active global config (not a campaign); LIMIT 1 so several active rows cannot break the Optional
+    Optional<DiscountConfig> findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc();
+
+    @Query("SELECT dc FROM DiscountConfig dc WHERE dc.isActive = true AND dc.endDate > :now " +
+           "AND (dc.category IS NOT NULL OR dc.customerSegment IS NOT NULL)")
+    List<DiscountConfig> findActiveCampaigns(@Param("now") LocalDateTime now);
+
+    @Query("SELECT dc FROM DiscountConfig dc WHERE dc.category IS NOT NULL OR dc.customerSegment IS NOT NULL " +
+           "ORDER BY dc.id DESC")
+    List<DiscountConfig> findAllCampaigns();
 }
\ No newline at end of file
@@ -1,26 +1,96 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.entity.Order;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    // No discount or FREQUENT_5 only (flags 0 or 1); rows without flags fall back to the legacy string
+    String OPEN_FOR_CAMPAIGN_DISCOUNT = "(o.discountFlags IN (0, 1) OR (o.discountFlags IS NULL " +
+            "AND (o.discountType IS NULL OR o.discountType = 'FREQUENT_5')))";
+
+    // Serializes status changes of one order so each transition is applied to the sales rollup once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
     Page<Order> findByUserIdAndIsVisibleTrueOrderByCreatedAtDesc(Long userId, Pageable pageable);
     Page<Order> findByIsVisibleTrueOrderByCreatedAtDesc(Pageable pageable);
+
+    // Keyset pages, newest first; id breaks createdAt ties so every row has one position
+    Slice<Order> findByIsVisibleTrueOrderByCreatedAtDescIdDesc(Pageable pageable);
+    Slice<Order> findByUserIdAndIsVisibleTrueOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE o.isVisible = true " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    Slice<Order> findVisibleBefore(@Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId AND o.isVisible = true " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    Slice<Order> findVisibleByUserBefore(@Param("userId") Long userId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    long countByIsVisibleTrue();
+    long countByUserIdAndIsVisibleTrue(Long userId);
     List<Order> findByOrderDateBetweenAndStatusNot(LocalDateTime startDate, LocalDateTime endDate, Order.OrderStatus status);
     List<Order> findByOrderDateBetweenAndStatus(LocalDateTime startDate, LocalDateTime endDate, Order.OrderStatus status);
-    
-    @Query("SELECT CONCAT(u.firstName, ' ', u.lastName) as customerName, COUNT(o) as totalOrders " +
-           "FROM Order o JOIN User u ON o.userId = u.id " +
-           "WHERE o.status = 'APPROVED' " +
-           "GROUP BY u.id, u.firstName, u.lastName " +
-           "ORDER BY COUNT(o) DESC")
-    List<Object[]> findTopCustomersByOrderCount(Pageable pageable);
+
+    @Query("SELECT COUNT(o) FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate " +
+           "AND o.status = :status AND o.isVisible = true " +
+           "AND " + OPEN_FOR_CAMPAIGN_DISCOUNT)
+    long countRandomDiscountCandidates(@Param("startDate") LocalDateTime startDate,
+                                       @Param("endDate") LocalDateTime endDate,
+                                       @Param("status") Order.OrderStatus status);
+
+    // Same predicate as the count, in a stable order so an offset identifies one order
+    @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate " +
+           "AND o.status = :status AND o.isVisible = true " +
+           "AND " + OPEN_FOR_CAMPAIGN_DISCOUNT + " " +
+           "ORDER BY o.id")
+    List<Order> findRandomDiscountCandidates(@Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate,
+                                             @Param("status") Order.OrderStatus status,
+                                             Pageable pageable);
+
+    // Keyset page of visible orders that can still take the time discount, in id order
+    @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate " +
+           "AND o.status = :status AND o.isVisible = true AND o.id > :afterId " +
+           "AND " + OPEN_FOR_CAMPAIGN_DISCOUNT + " " +
+           "ORDER BY o.id")
+    List<Order> findTimeDiscountCandidates(@Param("startDate") LocalDateTime startDate,
+                                           @Param("endDate") LocalDateTime endDate,
+                                           @Param("status") Order.OrderStatus status,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+    // Rebuild inputs for the top-customer sketches: all-time counts, and the recent orders
+    // one by one so they land in their time buckets
+    @Query("SELECT o.userId, COUNT(o) FROM Order o WHERE o.status = 'APPROVED' GROUP BY o.userId")
+    List<Object[]> countApprovedOrdersByUser();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT o.userId, o.orderDate FROM Order o WHERE o.status = 'APPROVED' AND o.orderDate >= :since")
+    Stream<Object[]> streamApprovedOrderDatesSince(@Param("since") LocalDateTime since);
 }
\ No newline at end of file
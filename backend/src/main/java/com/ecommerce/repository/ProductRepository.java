@@ -1,20 +1,60 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.entity.Product;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Page<Product> findByIsActiveTrue(Pageable pageable);
     List<Product> findByIsActiveTrue();
+    long countByIsActiveTrue();
+    List<Product> findBySkuIn(Collection<String> skus);
+    boolean existsBySku(String sku);
+
+    // Forward-only cursor over the active catalog; rows arrive in fetches of 500 and are not
+    // snapshotted for dirty checking. Must be consumed inside a transaction and closed.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Product p WHERE p.isActive = true ORDER BY p.id")
+    Stream<Product> streamByIsActiveTrue();
+
+    // Keyset pages of active products, newest first
+    Slice<Product> findByIsActiveTrueOrderByCreatedAtDescIdDesc(Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.isActive = true " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Product> findActiveBefore(@Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    // Ordered by id so every checkout acquires row locks in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
     
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
            "(:name IS NULL OR p.name LIKE %:name%) AND " +
@@ -26,11 +66,4 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                                 @Param("minPrice") BigDecimal minPrice,
                                 @Param("maxPrice") BigDecimal maxPrice,
                                 Pageable pageable);
-    
-    @Query("SELECT oi.productName, SUM(oi.quantity) as totalQuantitySold " +
-           "FROM OrderItem oi JOIN oi.order o " +
-           "WHERE o.status = 'APPROVED' " +
-           "GROUP BY oi.productName " +
-           "ORDER BY SUM(oi.quantity) DESC")
-    List<Object[]> findTopSellingProducts(Pageable pageable);
 }
\ No newline at end of file
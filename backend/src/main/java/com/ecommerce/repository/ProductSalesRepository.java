@@ -0,0 +1,18 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.ProductSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductSalesRepository extends JpaRepository<ProductSales, Long> {
+    // Ground truth for reconciliation: productId, latest name seen, units sold
+    @Query("SELECT oi.productId, MAX(oi.productName), SUM(oi.quantity) " +
+           "FROM OrderItem oi JOIN oi.order o " +
+           "WHERE o.status = 'APPROVED' " +
+           "GROUP BY oi.productId")
+    List<Object[]> aggregateApprovedSales();
+}
@@ -0,0 +1,498 @@
+package com.ecommerce.search;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.pricing.Money;
+import com.ecommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-process search over active products: token postings for name, description and category,
+// trigram postings over names for substring matches, a category dictionary and a price-sorted
+// view for range filters. Only ids are returned; callers load the rows by primary key.
+//
+// Every product version gets a new slot; replaced and deleted slots are tombstoned and the
+// index compacts itself once tombstones outnumber live slots.
+@Component
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final float NAME_TOKEN_SCORE = 3f;
+    private static final float NAME_PARTIAL_SCORE = 2f;
+    private static final float CATEGORY_TOKEN_SCORE = 1.5f;
+    private static final float DESCRIPTION_TOKEN_SCORE = 1f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled = true;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Per-slot data
+    private Doc[] docs = new Doc[1024];
+    private long[] productIds = new long[1024];
+    private long[] priceCents = new long[1024];
+    private int[] categoryIds = new int[1024];
+    private final BitSet live = new BitSet();
+    private int slotCount;
+    private final Map<Long, Integer> slotByProduct = new HashMap<>();
+
+    // Postings: sorted slot lists (slots only ever grow)
+    private final TreeMap<String, IntList> nameTokens = new TreeMap<>();
+    private final TreeMap<String, IntList> categoryTokens = new TreeMap<>();
+    private final TreeMap<String, IntList> descriptionTokens = new TreeMap<>();
+    private final Map<String, IntList> nameTrigrams = new HashMap<>();
+    private final Map<String, Integer> categoryDictionary = new HashMap<>();
+    private final List<IntList> categoryPostings = new ArrayList<>();
+
+    // Live slots ordered by price, rebuilt on the first price-only query after a change
+    private long[] sortedPrices = new long[0];
+    private int[] sortedSlots = new int[0];
+    private boolean priceViewDirty = true;
+
+    private volatile boolean ready;
+    private boolean rebuilding;
+    private final Map<Long, Product> changedDuringRebuild = new LinkedHashMap<>();
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Product> products = productRepository.findByIsActiveTrue();
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Product product : products) {
+                add(product);
+            }
+            // Edits that committed while the catalog was being read win over what was read
+            for (Map.Entry<Long, Product> change : changedDuringRebuild.entrySet()) {
+                apply(change.getKey(), change.getValue());
+            }
+            changedDuringRebuild.clear();
+            rebuilding = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index built with {} products", slotByProduct.size());
+    }
+
+    // Adds or replaces a product; inactive products are removed
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.put(product.getId(), copyOf(product));
+            }
+            apply(product.getId(), product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.put(productId, null);
+            }
+            apply(productId, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchResult search(String text, String category, BigDecimal minPrice, BigDecimal maxPrice,
+                               int offset, int limit) {
+        List<String> queryTokens = tokenize(text);
+        if (queryTokens.isEmpty() && text != null && !text.isBlank()) {
+            // Only punctuation: nothing can match it, rather than everything
+            return new SearchResult(0, List.of());
+        }
+        long min = minPrice != null ? Money.of(minPrice).getCents() : Long.MIN_VALUE;
+        long max = maxPrice != null ? Money.of(maxPrice).getCents() : Long.MAX_VALUE;
+        boolean priceOnly = queryTokens.isEmpty() && category == null && (minPrice != null || maxPrice != null);
+        if (priceOnly) {
+            ensurePriceView();
+        }
+
+        lock.readLock().lock();
+        try {
+            int categoryId = -1;
+            if (category != null) {
+                Integer id = categoryDictionary.get(category);
+                if (id == null) {
+                    return new SearchResult(0, List.of());
+                }
+                categoryId = id;
+            }
+
+            int[] matches;
+            float[] scores = null;
+            if (!queryTokens.isEmpty()) {
+                scores = new float[slotCount];
+                matches = matchAllTokens(queryTokens, scores);
+            } else if (categoryId >= 0) {
+                matches = categoryPostings.get(categoryId).toArray();
+            } else if (priceOnly) {
+                int from = lowerBound(sortedPrices, min);
+                int to = upperBound(sortedPrices, max);
+                matches = Arrays.copyOfRange(sortedSlots, from, Math.max(from, to));
+            } else {
+                matches = live.stream().toArray();
+            }
+
+            int count = 0;
+            for (int slot : matches) {
+                if (live.get(slot) && (categoryId < 0 || categoryIds[slot] == categoryId)
+                        && priceCents[slot] >= min && priceCents[slot] <= max) {
+                    matches[count++] = slot;
+                }
+            }
+            Integer[] ordered = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                ordered[i] = matches[i];
+            }
+            // Relevance first when there is text, then product id for a stable order
+            float[] finalScores = scores;
+            Arrays.sort(ordered, (a, b) -> {
+                if (finalScores != null && finalScores[a] != finalScores[b]) {
+                    return Float.compare(finalScores[b], finalScores[a]);
+                }
+                return Long.compare(productIds[a], productIds[b]);
+            });
+
+            List<Long> page = new ArrayList<>();
+            for (int i = offset; i < count && page.size() < limit; i++) {
+                page.add(productIds[ordered[i]]);
+            }
+            return new SearchResult(count, page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Slots matching every query token, with their summed relevance in scores
+    private int[] matchAllTokens(List<String> queryTokens, float[] scores) {
+        int[] matchedTokens = new int[slotCount];
+        for (String token : queryTokens) {
+            Map<Integer, Float> best = new HashMap<>();
+            collect(nameTokens.get(token), NAME_TOKEN_SCORE, best);
+            collect(categoryTokens.get(token), CATEGORY_TOKEN_SCORE, best);
+            collect(descriptionTokens.get(token), DESCRIPTION_TOKEN_SCORE, best);
+            if (token.length() >= 3) {
+                // Substring of a name, like the old LIKE '%name%': trigram candidates, then verified
+                for (int slot : trigramCandidates(token)) {
+                    if (docs[slot].normalizedName.contains(token)) {
+                        best.merge(slot, NAME_PARTIAL_SCORE, Math::max);
+                    }
+                }
+            } else {
+                // Too short for trigrams: check every live name
+                for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                    if (docs[slot].normalizedName.contains(token)) {
+                        best.merge(slot, NAME_PARTIAL_SCORE, Math::max);
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Float> entry : best.entrySet()) {
+                scores[entry.getKey()] += entry.getValue();
+                matchedTokens[entry.getKey()]++;
+            }
+        }
+        IntList matches = new IntList();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (matchedTokens[slot] == queryTokens.size()) {
+                matches.add(slot);
+            }
+        }
+        return matches.toArray();
+    }
+
+    private static void collect(IntList postings, float score, Map<Integer, Float> best) {
+        if (postings == null) {
+            return;
+        }
+        for (int i = 0; i < postings.size; i++) {
+            best.merge(postings.values[i], score, Math::max);
+        }
+    }
+
+    private int[] trigramCandidates(String token) {
+        int[] candidates = null;
+        for (String trigram : trigrams(token)) {
+            IntList postings = nameTrigrams.get(trigram);
+            if (postings == null) {
+                return new int[0];
+            }
+            candidates = candidates == null ? postings.toArray() : intersect(candidates, postings);
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates == null ? new int[0] : candidates;
+    }
+
+    private void ensurePriceView() {
+        lock.writeLock().lock();
+        try {
+            if (!priceViewDirty) {
+                return;
+            }
+            Integer[] slots = live.stream().boxed().toArray(Integer[]::new);
+            Arrays.sort(slots, (a, b) -> Long.compare(priceCents[a], priceCents[b]));
+            sortedSlots = new int[slots.length];
+            sortedPrices = new long[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                sortedSlots[i] = slots[i];
+                sortedPrices[i] = priceCents[slots[i]];
+            }
+            priceViewDirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Long productId, Product product) {
+        Integer previous = slotByProduct.remove(productId);
+        if (previous != null) {
+            live.clear(previous);
+            priceViewDirty = true;
+        }
+        if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+            add(product);
+        }
+        if (slotCount - live.cardinality() > Math.max(1024, live.cardinality())) {
+            compact();
+        }
+    }
+
+    private void add(Product product) {
+        int slot = slotCount++;
+        if (slot == productIds.length) {
+            int capacity = productIds.length * 2;
+            docs = Arrays.copyOf(docs, capacity);
+            productIds = Arrays.copyOf(productIds, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+        }
+        Doc doc = new Doc(product.getId(), product.getName(), product.getDescription(), product.getCategory(),
+                Money.of(product.getPrice()).getCents());
+        docs[slot] = doc;
+        productIds[slot] = doc.productId;
+        priceCents[slot] = doc.priceCents;
+        Integer categoryId = categoryDictionary.get(doc.category);
+        if (categoryId == null) {
+            categoryId = categoryPostings.size();
+            categoryDictionary.put(doc.category, categoryId);
+            categoryPostings.add(new IntList());
+        }
+        categoryIds[slot] = categoryId;
+        categoryPostings.get(categoryId).add(slot);
+
+        for (String token : new LinkedHashSet<>(tokenize(doc.name))) {
+            nameTokens.computeIfAbsent(token, t -> new IntList()).add(slot);
+        }
+        for (String token : new LinkedHashSet<>(tokenize(doc.category))) {
+            categoryTokens.computeIfAbsent(token, t -> new IntList()).add(slot);
+        }
+        for (String token : new LinkedHashSet<>(tokenize(doc.description))) {
+            descriptionTokens.computeIfAbsent(token, t -> new IntList()).add(slot);
+        }
+        for (String trigram : trigrams(doc.normalizedName)) {
+            nameTrigrams.computeIfAbsent(trigram, t -> new IntList()).add(slot);
+        }
+        slotByProduct.put(doc.productId, slot);
+        live.set(slot);
+        priceViewDirty = true;
+    }
+
+    // Re-adds the live documents into fresh postings, dropping tombstones
+    private void compact() {
+        List<Doc> liveDocs = new ArrayList<>();
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            liveDocs.add(docs[slot]);
+        }
+        clear();
+        for (Doc doc : liveDocs) {
+            add(doc.toProduct());
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(docs, 0, slotCount, null);
+        slotCount = 0;
+        live.clear();
+        slotByProduct.clear();
+        nameTokens.clear();
+        categoryTokens.clear();
+        descriptionTokens.clear();
+        nameTrigrams.clear();
+        categoryDictionary.clear();
+        categoryPostings.clear();
+        priceViewDirty = true;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static int[] intersect(int[] sorted, IntList postings) {
+        int[] result = new int[Math.min(sorted.length, postings.size)];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < sorted.length && j < postings.size) {
+            int a = sorted[i];
+            int b = postings.values[j];
+            if (a == b) {
+                result[count++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int lowerBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Product copyOf(Product product) {
+        Product copy = new Product(product.getName(), product.getDescription(), product.getPrice(),
+                product.getCategory(), product.getStock());
+        copy.setId(product.getId());
+        copy.setIsActive(product.getIsActive());
+        return copy;
+    }
+
+    public record SearchResult(long total, List<Long> productIds) {}
+
+    private static final class Doc {
+        private final long productId;
+        private final String name;
+        private final String description;
+        private final String category;
+        private final long priceCents;
+        private final String normalizedName;
+
+        Doc(long productId, String name, String description, String category, long priceCents) {
+            this.productId = productId;
+            this.name = name;
+            this.description = description;
+            this.category = category;
+            this.priceCents = priceCents;
+            this.normalizedName = normalize(name);
+        }
+
+        Product toProduct() {
+            Product product = new Product(name, description, Money.ofCents(priceCents).toBigDecimal(), category, 0);
+            product.setId(productId);
+            return product;
+        }
+    }
+
+    // Growable int array; postings are appended in slot order, so they stay sorted
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -2,18 +2,261 @@ package com.ecommerce.service;
 
 import com.ecommerce.entity.AuditLog;
 import com.ecommerce.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Transactional
 public class AuditService {
+    private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO audit_logs " +
+            "(id, entity_name, entity_id, action, user_id, timestamp, old_values, new_values) " +
+            "VALUES (nextval('audit_logs_id_seq'), ?, ?, ?, ?, ?, ?, ?)";
+
     @Autowired
     private AuditLogRepository auditLogRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // sync: insert inside the caller's transaction; async: queue after commit and insert in batches
+    @Value("${app.audit.mode:sync}")
+    private String mode;
+
+    @Value("${app.audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.audit.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    // What to do when the queue is full: block, drop or spill
+    @Value("${app.audit.overflow:block}")
+    private String overflow;
+
+    @Value("${app.audit.spill-file:audit-spill.ndjson}")
+    private String spillFile;
+
+    private BlockingQueue<AuditLog> queue;
+    private Thread flusher;
+    private volatile boolean running;
+    private Timer flushTimer;
+    private Counter droppedCounter;
+    private Counter spilledCounter;
+
+    @PostConstruct
+    public void start() {
+        if (!isAsync()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.gauge("audit.queue.depth", queue, BlockingQueue::size);
+        flushTimer = meterRegistry.timer("audit.flush.latency");
+        droppedCounter = meterRegistry.counter("audit.events.dropped");
+        spilledCounter = meterRegistry.counter("audit.events.spilled");
+
+        replaySpillFile();
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "audit-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
     public void logAction(String entityName, Long entityId, String action, Long userId, String oldValues, String newValues) {
         AuditLog auditLog = new AuditLog(entityName, entityId, action, userId, oldValues, newValues);
-        auditLogRepository.save(auditLog);
+        if (!isAsync()) {
+            auditLogRepository.save(auditLog);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only record what actually committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(auditLog);
+                }
+            });
+        } else {
+            enqueue(auditLog);
+        }
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            List<AuditLog> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            spill(remaining);
+        }
+    }
+
+    private boolean isAsync() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    private void enqueue(AuditLog auditLog) {
+        if (queue.offer(auditLog)) {
+            return;
+        }
+        switch (overflow.toLowerCase()) {
+            case "drop" -> droppedCounter.increment();
+            case "spill" -> spill(List.of(auditLog));
+            default -> {
+                try {
+                    queue.put(auditLog);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    spill(List.of(auditLog));
+                }
+            }
+        }
+    }
+
+    private void runFlusher() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Keep filling until the batch is full or the flush window closes
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    AuditLog next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                // Whatever is still queued is spilled by drain()
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, toBatchArgs(batch));
+        } catch (RuntimeException e) {
+            logger.error("Audit flush of {} events failed, spilling to {}", batch.size(), spillFile, e);
+            spill(batch);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void spill(List<AuditLog> events) {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(spillFile), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (AuditLog auditLog : events) {
+                writer.write(objectMapper.writeValueAsString(auditLog));
+                writer.newLine();
+            }
+            spilledCounter.increment(events.size());
+        } catch (IOException e) {
+            droppedCounter.increment(events.size());
+            logger.error("Could not spill {} audit events", events.size(), e);
+        }
+    }
+
+    // Events spilled by a previous run are written before new ones are accepted. The number of
+    // lines already inserted is kept next to the spill file after every batch, so a replay that
+    // fails part way resumes after the last committed batch instead of inserting it again.
+    private void replaySpillFile() {
+        Path path = Paths.get(spillFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+        Path progress = Paths.get(spillFile + ".replayed");
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            long replayed = Files.exists(progress) ? Long.parseLong(Files.readString(progress).trim()) : 0;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= replayed || line.isBlank()) {
+                    continue;
+                }
+                batch.add(objectMapper.readValue(line, AuditLog.class));
+                if (batch.size() == batchSize) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, toBatchArgs(batch));
+                    batch.clear();
+                    Files.writeString(progress, Long.toString(lineNumber));
+                }
+            }
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, toBatchArgs(batch));
+            }
+            Files.delete(path);
+            Files.deleteIfExists(progress);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not replay audit spill file {}", spillFile, e);
+        }
+    }
+
+    private List<Object[]> toBatchArgs(List<AuditLog> batch) {
+        List<Object[]> batchArgs = new ArrayList<>(batch.size());
+        for (AuditLog auditLog : batch) {
+            batchArgs.add(new Object[]{auditLog.getEntityName(), auditLog.getEntityId(), auditLog.getAction(),
+                    auditLog.getUserId(), Timestamp.valueOf(auditLog.getTimestamp()),
+                    auditLog.getOldValues(), auditLog.getNewValues()});
+        }
+        return batchArgs;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.DiscountConfig;
+import com.ecommerce.pricing.Campaign;
+import com.ecommerce.pricing.CampaignIndex;
+import com.ecommerce.repository.DiscountConfigRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Discount campaigns per category and customer segment, stored in discount_config and served
+// from an immutable CampaignIndex. Edits splice the index after commit; a periodic full
+// rebuild drops expired campaigns and compacts boundaries.
+@Service
+public class CampaignService {
+    private static final Logger logger = LoggerFactory.getLogger(CampaignService.class);
+
+    @Autowired
+    private DiscountConfigRepository discountConfigRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile CampaignIndex index = CampaignIndex.EMPTY;
+    private long nextVersion = 1;
+
+    @PostConstruct
+    public void registerMetrics() {
+        meterRegistry.gauge("campaign.index.version", this, service -> service.index.getVersion());
+        meterRegistry.gauge("campaign.index.size", this, service -> service.index.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.discount.campaign-rebuild-ms:3600000}",
+               initialDelayString = "${app.discount.campaign-rebuild-ms:3600000}")
+    public synchronized void rebuild() {
+        List<Campaign> campaigns = new ArrayList<>();
+        for (DiscountConfig config : discountConfigRepository.findActiveCampaigns(LocalDateTime.now())) {
+            campaigns.add(toCampaign(config));
+        }
+        index = CampaignIndex.build(nextVersion++, campaigns);
+        logger.info("Campaign index v{} built with {} campaigns", index.getVersion(), index.size());
+    }
+
+    public CampaignIndex getIndex() {
+        return index;
+    }
+
+    public long getVersion() {
+        return index.getVersion();
+    }
+
+    public List<Campaign> applicableCampaigns(String category, boolean frequentCustomer, LocalDateTime at) {
+        return index.applicable(DiscountSnapshot.toMillis(at), category, frequentCustomer);
+    }
+
+    public List<DiscountConfig> getCampaigns() {
+        return discountConfigRepository.findAllCampaigns();
+    }
+
+    @Transactional
+    public DiscountConfig saveCampaign(DiscountConfig config) {
+        if (!config.isCampaign()) {
+            throw new RuntimeException("A campaign needs a category or a customer segment");
+        }
+        if (!config.getEndDate().isAfter(config.getStartDate())) {
+            throw new RuntimeException("Campaign end date must be after its start date");
+        }
+        DiscountConfig saved = discountConfigRepository.save(config);
+        if (Boolean.TRUE.equals(saved.getIsActive())) {
+            Campaign campaign = toCampaign(saved);
+            afterCommit(current -> current.with(nextVersion++, campaign));
+        } else {
+            afterCommit(current -> current.without(nextVersion++, saved.getId()));
+        }
+        return saved;
+    }
+
+    // Only rows that already are campaigns can be replaced; the global config is not one
+    @Transactional
+    public DiscountConfig updateCampaign(Long id, DiscountConfig config) {
+        discountConfigRepository.findById(id)
+                .filter(DiscountConfig::isCampaign)
+                .orElseThrow(() -> new RuntimeException("Campaign not found with id: " + id));
+        config.setId(id);
+        return saveCampaign(config);
+    }
+
+    @Transactional
+    public void deactivateCampaign(Long id) {
+        DiscountConfig config = discountConfigRepository.findById(id)
+                .filter(DiscountConfig::isCampaign)
+                .orElseThrow(() -> new RuntimeException("Campaign not found with id: " + id));
+        config.setIsActive(false);
+        discountConfigRepository.save(config);
+        afterCommit(current -> current.without(nextVersion++, id));
+    }
+
+    // Readers keep the index they started with; the swap only happens once the edit is durable
+    private void afterCommit(UnaryOperator<CampaignIndex> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(change);
+                }
+            });
+        } else {
+            publish(change);
+        }
+    }
+
+    private synchronized void publish(UnaryOperator<CampaignIndex> change) {
+        index = change.apply(index);
+    }
+
+    static Campaign toCampaign(DiscountConfig config) {
+        return new Campaign(config.getId(), config.getName(), config.getCategory(), config.getCustomerSegment(),
+                config.getPriority() == null ? 0 : config.getPriority(),
+                Boolean.TRUE.equals(config.getIsExclusive()),
+                DiscountSnapshot.toBasisPoints(config.getTimeDiscountPercentage()),
+                DiscountSnapshot.toMillis(config.getStartDate()),
+                DiscountSnapshot.toMillis(config.getEndDate()));
+    }
+}
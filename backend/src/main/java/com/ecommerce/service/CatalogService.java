@@ -0,0 +1,284 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CatalogImportReport;
+import com.ecommerce.dto.CatalogRow;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Bulk catalog import and export in NDJSON (one CatalogRow object per line) or CSV
+// (header line naming the columns, one product per line)
+@Service
+public class CatalogService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogService.class);
+    private static final List<String> CSV_COLUMNS = List.of("sku", "name", "description", "price", "category", "stock");
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.catalog.import-chunk-size:1000}")
+    private int chunkSize;
+
+    // Reads the input once, validating each row as it arrives. Valid rows are upserted in chunks
+    // that commit on their own; a failed chunk stops the run and lastCommittedLine tells the
+    // caller where to resume. Lines up to resumeAfterLine are skipped (the CSV header is always read).
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CatalogImportReport importCatalog(InputStream in, String format, long resumeAfterLine) throws IOException {
+        boolean csv = isCsv(format);
+        CatalogImportReport report = new CatalogImportReport(resumeAfterLine);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        Map<String, Integer> columns = null;
+        long lineNumber = 0;
+        if (csv) {
+            String header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                report.setCompleted(true);
+                return report;
+            }
+            columns = parseHeader(header);
+            Set<String> missing = new TreeSet<>(CSV_COLUMNS);
+            missing.remove("description");
+            missing.removeAll(columns.keySet());
+            if (!missing.isEmpty()) {
+                report.setFailure("CSV header is missing columns: " + missing);
+                return report;
+            }
+        }
+
+        List<CatalogRow> chunk = new ArrayList<>(chunkSize);
+        long chunkFirstLine = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber <= resumeAfterLine || line.isBlank()) {
+                continue;
+            }
+            report.recordLine();
+            CatalogRow row = parseRow(line, lineNumber, columns, report);
+            if (row == null) {
+                continue;
+            }
+            if (chunk.isEmpty()) {
+                chunkFirstLine = lineNumber;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                if (!commitChunk(chunk, chunkFirstLine, lineNumber, report)) {
+                    return report;
+                }
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty() && !commitChunk(chunk, chunkFirstLine, lineNumber, report)) {
+            return report;
+        }
+        // Trailing rejected or blank lines need no replay either
+        report.setLastCommittedLine(Math.max(report.getLastCommittedLine(), lineNumber));
+        report.setCompleted(true);
+        return report;
+    }
+
+    // Streams the active catalog in the import format, one detached row at a time. Products
+    // without a sku could not be imported back, so they are left out and counted in the log.
+    @Transactional(readOnly = true)
+    public void exportCatalog(OutputStream out, String format) throws IOException {
+        boolean csv = isCsv(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write('\n');
+        }
+        long exported = 0;
+        long skipped = 0;
+        try (Stream<Product> products = productRepository.streamByIsActiveTrue()) {
+            Iterator<Product> rows = products.iterator();
+            while (rows.hasNext()) {
+                Product product = rows.next();
+                CatalogRow row = CatalogRow.from(product);
+                entityManager.detach(product);
+                if (row.getSku() == null || row.getSku().isBlank()) {
+                    skipped++;
+                    continue;
+                }
+                writer.write(csv ? toCsv(row) : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+                exported++;
+            }
+        }
+        writer.flush();
+        if (skipped > 0) {
+            logger.warn("Catalog export wrote {} products and skipped {} without a sku", exported, skipped);
+        }
+    }
+
+    private boolean commitChunk(List<CatalogRow> chunk, long firstLine, long lastLine, CatalogImportReport report) {
+        try {
+            // The caller clears and refills chunk for the next lines
+            int upserted = productService.upsertCatalogChunk(List.copyOf(chunk), firstLine, lastLine);
+            report.recordChunk(upserted, lastLine);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Catalog import chunk at lines {}-{} failed", firstLine, lastLine, e);
+            report.setFailure("Lines " + firstLine + "-" + lastLine + " were not imported: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private CatalogRow parseRow(String line, long lineNumber, Map<String, Integer> columns, CatalogImportReport report) {
+        CatalogRow row;
+        try {
+            row = columns != null ? fromCsv(line, columns) : objectMapper.readValue(line, CatalogRow.class);
+        } catch (JsonProcessingException e) {
+            report.recordError(lineNumber, null, "Unreadable row: " + e.getOriginalMessage());
+            return null;
+        } catch (IllegalArgumentException e) {
+            report.recordError(lineNumber, null, "Unreadable row: " + e.getMessage());
+            return null;
+        }
+        Set<ConstraintViolation<CatalogRow>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            report.recordError(lineNumber, row.getSku(), message);
+            return null;
+        }
+        return row;
+    }
+
+    private static boolean isCsv(String format) {
+        String normalized = format == null ? "ndjson" : format.toLowerCase(Locale.ROOT);
+        if (!normalized.equals("csv") && !normalized.equals("ndjson")) {
+            throw new IllegalArgumentException("Unsupported catalog format: " + format);
+        }
+        return normalized.equals("csv");
+    }
+
+    private static Map<String, Integer> parseHeader(String header) {
+        List<String> names = parseCsvLine(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    private static CatalogRow fromCsv(String line, Map<String, Integer> columns) {
+        List<String> fields = parseCsvLine(line);
+        CatalogRow row = new CatalogRow();
+        row.setSku(field(fields, columns, "sku"));
+        row.setName(field(fields, columns, "name"));
+        row.setDescription(field(fields, columns, "description"));
+        row.setCategory(field(fields, columns, "category"));
+        String price = field(fields, columns, "price");
+        row.setPrice(price == null ? null : new BigDecimal(price.trim()));
+        String stock = field(fields, columns, "stock");
+        row.setStock(stock == null ? null : Integer.valueOf(stock.trim()));
+        return row;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may hold commas and doubled quotes
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String toCsv(CatalogRow row) {
+        return String.join(",", csvField(row.getSku()), csvField(row.getName()), csvField(row.getDescription()),
+                row.getPrice().toPlainString(), csvField(row.getCategory()), String.valueOf(row.getStock()));
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        // Line breaks are flattened so every product stays on one line
+        String flat = value.replace("\r", " ").replace("\n", " ");
+        if (flat.contains(",") || flat.contains("\"")) {
+            return "\"" + flat.replace("\"", "\"\"") + "\"";
+        }
+        return flat;
+    }
+}
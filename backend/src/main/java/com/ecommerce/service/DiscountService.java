@@ -2,46 +2,83 @@ package com.ecommerce.service;
 
 import com.ecommerce.entity.DiscountConfig;
 import com.ecommerce.entity.User;
+import com.ecommerce.pricing.Money;
 import com.ecommerce.repository.DiscountConfigRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class DiscountService {
+    private static final Logger logger = LoggerFactory.getLogger(DiscountService.class);
+
     @Autowired
     private DiscountConfigRepository discountConfigRepository;
 
-    public BigDecimal calculateDiscount(BigDecimal totalAmount, boolean isRandomOrder, User user) {
-        BigDecimal discountPercentage = BigDecimal.ZERO;
-        
-        // Frequent customer discount (5%) - always applies
-        if (user.getIsFrequentCustomer()) {
-            discountPercentage = discountPercentage.add(BigDecimal.valueOf(5.0));
-        }
-        
-        // Time-based and random discounts only apply if config is active
-        DiscountConfig config = discountConfigRepository.findActiveDiscountConfig().orElse(null);
-        if (config != null && config.isWithinDiscountPeriod(LocalDateTime.now())) {
-            // Random order discount (50%) - exclusive with time discount
-            if (isRandomOrder) {
-                discountPercentage = discountPercentage.add(config.getRandomDiscountPercentage());
-            } else {
-                // Time-based discount (10%) - only if not random
-                discountPercentage = discountPercentage.add(config.getTimeDiscountPercentage());
-            }
-        }
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Reload even without a change or boundary, to pick up edits made outside this instance
+    @Value("${app.discount.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    private volatile DiscountSnapshot snapshot;
+    private long nextVersion = 1;
+
+    @PostConstruct
+    public void registerMetrics() {
+        meterRegistry.gauge("discount.config.staleness.seconds", this, service -> {
+            DiscountSnapshot current = service.snapshot;
+            return current == null ? 0 : (System.currentTimeMillis() - current.getLoadedAtMillis()) / 1000.0;
+        });
+        meterRegistry.gauge("discount.config.version", this, service -> {
+            DiscountSnapshot current = service.snapshot;
+            return current == null ? 0 : current.getVersion();
+        });
+    }
 
-        return totalAmount.multiply(discountPercentage.divide(BigDecimal.valueOf(100)));
+    public Money calculateDiscount(Money totalAmount, boolean isRandomOrder, User user) {
+        DiscountSnapshot rules = currentSnapshot();
+        int flags = rules.applicableFlags(user.getIsFrequentCustomer(), isRandomOrder, System.currentTimeMillis());
+        return totalAmount.percentage(rules.basisPointsFor(flags));
     }
 
     public DiscountConfig getActiveDiscountConfig() {
-        return discountConfigRepository.findActiveDiscountConfig().orElse(null);
+        return discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc().orElse(null);
+    }
+
+    public DiscountSnapshot getSnapshot() {
+        return currentSnapshot();
+    }
+
+    // Swaps in a freshly loaded snapshot; readers see either the old one or the new one
+    public synchronized DiscountSnapshot refresh() {
+        DiscountConfig config = getActiveDiscountConfig();
+        DiscountSnapshot loaded = new DiscountSnapshot(nextVersion++, config, System.currentTimeMillis());
+        snapshot = loaded;
+        logger.debug("Loaded discount config snapshot v{} (config {})", loaded.getVersion(), loaded.getConfigId());
+        return loaded;
+    }
+
+    @Scheduled(fixedDelayString = "${app.discount.refresh-check-ms:1000}")
+    public void refreshIfStale() {
+        DiscountSnapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current == null || current.boundaryPassedSince(now)
+                || now - current.getLoadedAtMillis() >= TimeUnit.SECONDS.toMillis(maxAgeSeconds)) {
+            refresh();
+        }
     }
 
-    public DiscountConfig updateDiscountConfig(DiscountConfig config) {
-        return discountConfigRepository.save(config);
+    private DiscountSnapshot currentSnapshot() {
+        DiscountSnapshot current = snapshot;
+        return current != null ? current : refresh();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.DiscountConfig;
+import com.ecommerce.entity.Order.DiscountType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Immutable view of the active DiscountConfig, compiled into a table of basis points indexed
+// by Order.DiscountType flags. Evaluation is a few int operations and one table lookup.
+public final class DiscountSnapshot {
+    public static final int FREQUENT_CUSTOMER_BASIS_POINTS = 500;
+
+    private final long version;
+    private final LocalDateTime loadedAt;
+    private final long loadedAtMillis;
+    private final Long configId;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final BigDecimal timeDiscountPercentage;
+    private final BigDecimal randomDiscountPercentage;
+    private final boolean active;
+    private final long startMillis;
+    private final long endMillis;
+
+    // Combined discount for every flag combination, 1/100 of a percent each
+    private final int[] basisPointsByFlags = new int[DiscountType.COMBINATIONS];
+
+    DiscountSnapshot(long version, DiscountConfig config, long nowMillis) {
+        this.version = version;
+        this.loadedAtMillis = nowMillis;
+        this.loadedAt = LocalDateTime.now();
+        this.configId = config != null ? config.getId() : null;
+        this.startDate = config != null ? config.getStartDate() : null;
+        this.endDate = config != null ? config.getEndDate() : null;
+        this.timeDiscountPercentage = config != null ? config.getTimeDiscountPercentage() : null;
+        this.randomDiscountPercentage = config != null ? config.getRandomDiscountPercentage() : null;
+        this.active = config != null && Boolean.TRUE.equals(config.getIsActive())
+                && startDate != null && endDate != null;
+        this.startMillis = active ? toMillis(startDate) : Long.MAX_VALUE;
+        this.endMillis = active ? toMillis(endDate) : Long.MIN_VALUE;
+
+        for (int flags = 0; flags < basisPointsByFlags.length; flags++) {
+            int basisPoints = 0;
+            for (DiscountType type : DiscountType.values()) {
+                if ((flags & type.bit()) != 0) {
+                    basisPoints += basisPointsOf(type);
+                }
+            }
+            basisPointsByFlags[flags] = basisPoints;
+        }
+    }
+
+    // Frequent customer discount always applies; time and random are exclusive and only apply
+    // inside the config's period
+    public int applicableFlags(boolean frequentCustomer, boolean randomOrder, long nowMillis) {
+        int flags = frequentCustomer ? DiscountType.FREQUENT_5.bit() : 0;
+        if (nowMillis > startMillis && nowMillis < endMillis) {
+            flags |= randomOrder ? DiscountType.RANDOM_50.bit() : DiscountType.TIME_10.bit();
+        }
+        return flags;
+    }
+
+    public int basisPointsFor(int flags) {
+        return basisPointsByFlags[flags & (DiscountType.COMBINATIONS - 1)];
+    }
+
+    private int basisPointsOf(DiscountType type) {
+        return switch (type) {
+            case FREQUENT_5 -> FREQUENT_CUSTOMER_BASIS_POINTS;
+            case TIME_10 -> active ? toBasisPoints(timeDiscountPercentage) : 0;
+            case RANDOM_50 -> active ? toBasisPoints(randomDiscountPercentage) : 0;
+        };
+    }
+
+    static int toBasisPoints(BigDecimal percentage) {
+        return percentage.movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+    }
+
+    // True once the clock has crossed a start or end boundary since this snapshot was loaded
+    public boolean boundaryPassedSince(long nowMillis) {
+        return crossed(startMillis, nowMillis) || crossed(endMillis, nowMillis);
+    }
+
+    private boolean crossed(long boundary, long nowMillis) {
+        return boundary > loadedAtMillis && boundary <= nowMillis;
+    }
+
+    static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public long getVersion() { return version; }
+    public LocalDateTime getLoadedAt() { return loadedAt; }
+    public long getLoadedAtMillis() { return loadedAtMillis; }
+    public Long getConfigId() { return configId; }
+    public LocalDateTime getStartDate() { return startDate; }
+    public LocalDateTime getEndDate() { return endDate; }
+    public BigDecimal getTimeDiscountPercentage() { return timeDiscountPercentage; }
+    public BigDecimal getRandomDiscountPercentage() { return randomDiscountPercentage; }
+    public boolean isActive() { return active; }
+}
@@ -0,0 +1,215 @@
+package com.ecommerce.service;
+
+import com.ecommerce.cache.BoundedCache;
+import com.ecommerce.dto.OrderRequest;
+import com.ecommerce.entity.IdempotencyRecord;
+import com.ecommerce.entity.Order;
+import com.ecommerce.exception.IdempotencyConflictException;
+import com.ecommerce.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Makes order creation safe to retry: the first result for a key is stored and replayed,
+// and concurrent duplicates wait for the execution that is already running
+@Service
+public class IdempotencyService {
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    private BoundedCache<String, IdempotencyRecord> cache;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        cache = new BoundedCache<>(maxEntries, Duration.ofMinutes(ttlMinutes));
+    }
+
+    public Order execute(String key, Long userId, OrderRequest request, Supplier<Order> action) {
+        // Keys are scoped per user so two clients cannot collide on the same value
+        String scopedKey = userId + ":" + key;
+        String requestHash = fingerprint(userId, request);
+
+        IdempotencyRecord stored = lookup(scopedKey);
+        if (stored != null) {
+            return replay(stored, key, requestHash);
+        }
+
+        InFlight mine = new InFlight(requestHash);
+        InFlight running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            if (!running.requestHash.equals(requestHash)) {
+                throw new IdempotencyConflictException(key);
+            }
+            return await(running.result);
+        }
+
+        try {
+            // A concurrent winner may have finished between the lookup and claiming the key
+            stored = lookup(scopedKey);
+            Order order = stored != null ? replay(stored, key, requestHash) : executeOnce(scopedKey, key, userId, requestHash, action, true);
+            mine.result.complete(order);
+            return order;
+        } catch (RuntimeException e) {
+            // Failures are not remembered, so the client may retry with the same key
+            cache.invalidate(scopedKey);
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    private Order executeOnce(String scopedKey, String key, Long userId, String requestHash, Supplier<Order> action,
+                             boolean retryExpired) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Order created = action.get();
+                IdempotencyRecord record = new IdempotencyRecord(scopedKey, userId, requestHash,
+                        serialize(created), LocalDateTime.now().plusMinutes(ttlMinutes));
+                idempotencyRecordRepository.save(record);
+                // Only a committed result may be replayed; a rollback must leave the key retryable
+                afterCommit(() -> cache.put(scopedKey, record));
+                return created;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance committed the same key first; this transaction rolled back, so
+            // answer with the stored result instead
+            IdempotencyRecord winner = idempotencyRecordRepository.findById(scopedKey).orElseThrow(() -> e);
+            LocalDateTime now = LocalDateTime.now();
+            if (winner.isExpired(now)) {
+                // An expired row still held the key, so there is no result to replay
+                if (!retryExpired) {
+                    throw e;
+                }
+                idempotencyRecordRepository.deleteExpired(scopedKey, now);
+                return executeOnce(scopedKey, key, userId, requestHash, action, false);
+            }
+            cache.put(scopedKey, winner);
+            return replay(winner, key, requestHash);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private IdempotencyRecord lookup(String scopedKey) {
+        IdempotencyRecord record = cache.get(scopedKey);
+        if (record == null) {
+            record = idempotencyRecordRepository.findById(scopedKey).orElse(null);
+            if (record == null) {
+                return null;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (record.isExpired(now)) {
+                // Not purged yet; the row would make the new result's insert collide. The
+                // condition leaves alone a row another instance has just replaced
+                idempotencyRecordRepository.deleteExpired(scopedKey, now);
+                return null;
+            }
+            cache.put(scopedKey, record);
+        }
+        return record;
+    }
+
+    private Order replay(IdempotencyRecord record, String key, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException(key);
+        }
+        try {
+            return objectMapper.readValue(record.getResponseBody(), Order.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored response for Idempotency-Key " + key + " is unreadable", e);
+        }
+    }
+
+    private Order await(CompletableFuture<Order> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String serialize(Order order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not store order response", e);
+        }
+    }
+
+    private String fingerprint(Long userId, OrderRequest request) {
+        Map<Long, Integer> lines = new TreeMap<>();
+        for (OrderRequest.OrderItemRequest item : request.getItems()) {
+            lines.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest((userId + "|" + lines).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class InFlight {
+        private final String requestHash;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+
+        InFlight(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
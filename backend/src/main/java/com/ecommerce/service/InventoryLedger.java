@@ -0,0 +1,343 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// In-memory stock counters used when app.inventory.mode=ledger. Checkouts reserve against the
+// counters under a short per-product lock; committed reservations are written behind to the
+// products table. Each write is conditional on the row version the ledger last saw, so an
+// absolute stock write (an admin edit or an import) that commits while deltas are in flight wins:
+// the deltas taken before it are discarded instead of being subtracted from the new value.
+@Service
+public class InventoryLedger {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE products SET stock = stock - ?, updated_at = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.inventory.mode:database}")
+    private String mode;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    // Told which products had their rows rewritten by a flush, once the write has committed
+    private volatile Consumer<List<Long>> rowsWrittenListener = productIds -> { };
+
+    public boolean isEnabled() {
+        return "ledger".equalsIgnoreCase(mode);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrate() {
+        if (!isEnabled()) {
+            return;
+        }
+        // Requests are served before this event; a counter they already loaded may hold
+        // reservations, so it is kept rather than replaced
+        jdbcTemplate.query("SELECT id, stock, version FROM products", rs -> {
+            counters.putIfAbsent(rs.getLong("id"), new Counter(rs.getInt("stock"), rs.getLong("version")));
+        });
+        logger.info("Inventory ledger loaded {} products", counters.size());
+    }
+
+    // Reserves every line or none. Returns the short lines (product id -> available), empty on success.
+    public Map<Long, Integer> reserve(Map<Long, Integer> quantities) {
+        List<Hold> holds = new ArrayList<>();
+        Map<Long, Integer> shortages = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Counter counter = counterFor(line.getKey());
+            if (counter == null) {
+                shortages.put(line.getKey(), 0);
+                continue;
+            }
+            int epoch = counter.tryAcquire(line.getValue());
+            if (epoch < 0) {
+                shortages.put(line.getKey(), counter.available());
+            } else {
+                holds.add(new Hold(counter, line.getValue(), epoch));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            release(holds);
+            return shortages;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        commit(holds);
+                    } else {
+                        release(holds);
+                    }
+                }
+            });
+        } else {
+            commit(holds);
+        }
+        return shortages;
+    }
+
+    public int available(Long productId) {
+        Counter counter = counterFor(productId);
+        return counter == null ? 0 : counter.available();
+    }
+
+    // An absolute stock write (e.g. an admin edit) replaces whatever the counter held,
+    // including reservations that are still waiting to commit or to be written
+    public void reset(Product product) {
+        if (!isEnabled()) {
+            return;
+        }
+        afterCommit(() -> counters.compute(product.getId(), (id, counter) -> {
+            if (counter == null) {
+                return new Counter(product.getStock(), product.getVersion());
+            }
+            counter.reset(product.getStock(), product.getVersion());
+            return counter;
+        }));
+    }
+
+    // Any other write to a product row moves its version, which the next delta write must match
+    public void rowWritten(Product product) {
+        if (!isEnabled()) {
+            return;
+        }
+        afterCommit(() -> {
+            Counter counter = counters.get(product.getId());
+            if (counter != null) {
+                counter.versionSeen(product.getVersion());
+            }
+        });
+    }
+
+    public void onRowsWritten(Consumer<List<Long>> listener) {
+        rowsWrittenListener = listener;
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval-ms:200}")
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        List<Delta> deltas = new ArrayList<>();
+        List<Long> productIds = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Delta delta = entry.getValue().drain();
+            if (delta != null) {
+                deltas.add(delta);
+                productIds.add(entry.getKey());
+                batchArgs.add(new Object[]{delta.quantity(), now, entry.getKey(), delta.version()});
+            }
+        }
+        if (batchArgs.isEmpty()) {
+            return;
+        }
+        int[] updated;
+        try {
+            updated = jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batchArgs);
+        } catch (DataAccessException e) {
+            // Put the deltas back so the next flush retries them
+            deltas.forEach(Delta::restore);
+            logger.warn("Inventory flush failed for {} products, will retry", deltas.size(), e);
+            return;
+        }
+        List<Long> written = new ArrayList<>(deltas.size());
+        for (int i = 0; i < deltas.size(); i++) {
+            if (updated[i] == 0) {
+                // The row was rewritten since the delta was taken: either a reset already replaced
+                // the delta, or its afterCommit is about to, and until then the delta waits
+                deltas.get(i).restore();
+            } else {
+                deltas.get(i).written();
+                written.add(productIds.get(i));
+            }
+        }
+        if (written.size() < deltas.size()) {
+            logger.warn("Inventory flush skipped {} products whose rows changed underneath",
+                    deltas.size() - written.size());
+        }
+        if (!written.isEmpty()) {
+            rowsWrittenListener.accept(written);
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+    }
+
+    private Counter counterFor(Long productId) {
+        return counters.computeIfAbsent(productId, id -> {
+            try {
+                return jdbcTemplate.queryForObject("SELECT stock, version FROM products WHERE id = ?",
+                        (rs, rowNum) -> new Counter(rs.getInt("stock"), rs.getLong("version")), id);
+            } catch (EmptyResultDataAccessException e) {
+                return null;
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void commit(List<Hold> holds) {
+        holds.forEach(hold -> hold.counter().commit(hold.quantity(), hold.epoch()));
+    }
+
+    private void release(List<Hold> holds) {
+        holds.forEach(hold -> hold.counter().release(hold.quantity(), hold.epoch()));
+    }
+
+    // A reservation taken in one epoch of its counter; a reset starts a new epoch
+    private record Hold(Counter counter, int quantity, int epoch) {
+    }
+
+    // Committed reservations drained from a counter, waiting for their database write
+    private record Delta(Counter counter, int quantity, long version, int epoch) {
+        void restore() {
+            counter.restore(this);
+        }
+
+        void written() {
+            counter.versionSeen(version + 1);
+        }
+    }
+
+    // Lock-free on the checkout path: available and pending each share one AtomicLong with the
+    // epoch, so a reservation, commit or release is a single compare-and-set. Only resets, which
+    // come from admin writes, are serialized.
+    private static class Counter {
+        private final AtomicLong stock;
+        private final AtomicLong pending;
+        // The row version the next delta write expects
+        private final AtomicLong version;
+
+        Counter(int available, Long rowVersion) {
+            this.stock = new AtomicLong(pack(0, available));
+            this.pending = new AtomicLong(pack(0, 0));
+            this.version = new AtomicLong(rowVersion == null ? 0 : rowVersion);
+        }
+
+        // Returns the epoch the quantity was taken in, or -1 when there is not enough stock
+        int tryAcquire(int quantity) {
+            while (true) {
+                long current = stock.get();
+                if (valueOf(current) < quantity) {
+                    return -1;
+                }
+                if (stock.compareAndSet(current, pack(epochOf(current), valueOf(current) - quantity))) {
+                    return epochOf(current);
+                }
+            }
+        }
+
+        int available() {
+            return valueOf(stock.get());
+        }
+
+        // Reservations from before the last reset are already accounted for by the absolute value
+        void commit(int quantity, int heldIn) {
+            add(pending, quantity, heldIn);
+        }
+
+        void release(int quantity, int heldIn) {
+            add(stock, quantity, heldIn);
+        }
+
+        // pending moves to the new epoch first, so a reservation taken before the reset can
+        // neither commit into it nor be released into the new stock
+        synchronized void reset(int available, Long rowVersion) {
+            int epoch = epochOf(stock.get()) + 1;
+            pending.set(pack(epoch, 0));
+            stock.set(pack(epoch, available));
+            versionSeen(rowVersion);
+        }
+
+        void versionSeen(Long rowVersion) {
+            if (rowVersion != null) {
+                version.accumulateAndGet(rowVersion, Math::max);
+            }
+        }
+
+        Delta drain() {
+            while (true) {
+                // Read before the epoch check: a reset moves the epoch before it moves the version,
+                // so a delta never carries the version of a reset that replaced it
+                long expected = version.get();
+                long current = pending.get();
+                if (valueOf(current) == 0) {
+                    return null;
+                }
+                if (pending.compareAndSet(current, pack(epochOf(current), 0))) {
+                    return new Delta(this, valueOf(current), expected, epochOf(current));
+                }
+            }
+        }
+
+        void restore(Delta delta) {
+            add(pending, delta.quantity(), delta.epoch());
+        }
+
+        // Adds quantity to the value of state, unless state has moved to another epoch
+        private static void add(AtomicLong state, int quantity, int epoch) {
+            while (true) {
+                long current = state.get();
+                if (epochOf(current) != epoch
+                        || state.compareAndSet(current, pack(epoch, valueOf(current) + quantity))) {
+                    return;
+                }
+            }
+        }
+
+        private static long pack(int epoch, int value) {
+            return ((long) epoch << 32) | (value & 0xFFFFFFFFL);
+        }
+
+        private static int epochOf(long state) {
+            return (int) (state >>> 32);
+        }
+
+        private static int valueOf(long state) {
+            return (int) state;
+        }
+    }
+}
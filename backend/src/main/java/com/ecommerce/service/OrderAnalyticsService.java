@@ -0,0 +1,275 @@
+package com.ecommerce.service;
+
+import com.ecommerce.analytics.OrderColumns;
+import com.ecommerce.dto.RevenueBucket;
+import com.ecommerce.entity.Order;
+import com.ecommerce.pricing.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Revenue, discount and order counts per hour, day or month, served from a columnar snapshot of
+// orders and items instead of GROUP BY queries on the live orders table. The snapshot is built at
+// startup, extended every refresh with orders created since the last one, and rebuilt in full
+// periodically. Status and discount changes to loaded orders are queued after commit and applied
+// on the next refresh; anything else that rewrites an order (or a product's category) shows up
+// at the next rebuild. Refreshes only see orders that commit within settle-ms of their
+// created_at; a later commit sorts behind the watermark and waits for the next rebuild.
+// Orders without created_at are not included.
+@Service
+public class OrderAnalyticsService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderAnalyticsService.class);
+
+    private static final String SELECT_SQL =
+            "SELECT o.id, o.created_at, o.status, o.total_amount, o.discount_applied, o.discount_flags, " +
+            "o.discount_type, oi.quantity, oi.unit_price, p.category FROM orders o " +
+            "LEFT JOIN order_items oi ON oi.order_id = o.id LEFT JOIN products p ON p.id = oi.product_id ";
+    private static final String REBUILD_SQL = SELECT_SQL +
+            "WHERE o.created_at < ? ORDER BY o.created_at, o.id";
+    private static final String APPEND_SQL = SELECT_SQL +
+            "WHERE (o.created_at > ? OR (o.created_at = ? AND o.id > ?)) AND o.created_at < ? " +
+            "ORDER BY o.created_at, o.id";
+
+    private static final String NO_DISCOUNT = "NONE";
+    private static final String UNCATEGORIZED = "UNCATEGORIZED";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.analytics.fetch-size:5000}")
+    private int fetchSize;
+
+    // Orders younger than this are left for a later refresh, so one that commits up to settle-ms
+    // after its created_at is still picked up by the watermark. One that commits later than that
+    // (a long transaction) is missed by refreshes and only appears at the next rebuild.
+    @Value("${app.analytics.settle-ms:5000}")
+    private long settleMs;
+
+    // Readers hold the read lock for a whole aggregation; appends, updates and the swap after a
+    // rebuild take the write lock. Loading from the database happens outside it.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<Change> pendingChanges = new ConcurrentLinkedQueue<>();
+    private JdbcTemplate cursorTemplate;
+
+    private volatile OrderColumns columns;
+    // Written only by refresh and rebuild, which are synchronized
+    private LocalDateTime loadedThroughCreatedAt;
+    private long loadedThroughId;
+    private volatile LocalDateTime rebuiltAt;
+
+    @PostConstruct
+    public void init() {
+        cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursorTemplate.setFetchSize(fetchSize);
+        meterRegistry.gauge("analytics.orders.rows", this, service -> service.size());
+    }
+
+    public boolean isReady() {
+        return columns != null;
+    }
+
+    public int size() {
+        OrderColumns current = columns;
+        return current == null ? 0 : current.size();
+    }
+
+    public LocalDateTime getRebuiltAt() {
+        return rebuiltAt;
+    }
+
+    // status null covers every status; from and to are optional, to is exclusive
+    public List<RevenueBucket> revenue(OrderColumns.Granularity granularity, OrderColumns.GroupBy groupBy,
+                                       Order.OrderStatus status, LocalDateTime from, LocalDateTime to) {
+        List<OrderColumns.Cell> cells;
+        List<RevenueBucket> buckets;
+        lock.readLock().lock();
+        try {
+            OrderColumns current = columns;
+            if (current == null) {
+                throw new IllegalStateException("Order analytics are still loading");
+            }
+            cells = current.aggregate(granularity, groupBy,
+                    status == null ? OrderColumns.ANY_STATUS : status.ordinal(), from, to, ForkJoinPool.commonPool());
+            buckets = new ArrayList<>(cells.size());
+            for (OrderColumns.Cell cell : cells) {
+                buckets.add(new RevenueBucket(granularity.start(cell.bucket()), groupName(current, groupBy, cell.group()),
+                        cell.orders(), BigDecimal.valueOf(cell.revenueCents(), Money.SCALE),
+                        BigDecimal.valueOf(cell.discountCents(), Money.SCALE)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return buckets;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", isReady());
+        status.put("orders", size());
+        status.put("pendingChanges", pendingChanges.size());
+        status.put("rebuiltAt", rebuiltAt);
+        return status;
+    }
+
+    // Called once an order's status, totals or discount flags have been changed in the current transaction
+    public void orderChanged(Order order) {
+        if (order.getId() == null || order.getCreatedAt() == null) {
+            return;
+        }
+        Change change = new Change(order.getId(), order.getCreatedAt(), order.getStatus().ordinal(),
+                order.getDiscountFlags(), Money.of(order.getTotalAmount()).getCents(),
+                Money.of(order.getDiscountApplied()).getCents());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendingChanges.add(change);
+                }
+            });
+        } else {
+            pendingChanges.add(change);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.analytics.rebuild-ms:3600000}",
+               initialDelayString = "${app.analytics.rebuild-ms:3600000}")
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Loader loader = new Loader();
+        cursorTemplate.query(REBUILD_SQL, loader, Timestamp.valueOf(settledBefore()));
+
+        lock.writeLock().lock();
+        try {
+            columns = loader.columns;
+            applyPendingChanges();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loadedThroughCreatedAt = loader.lastCreatedAt;
+        loadedThroughId = loader.lastId;
+        rebuiltAt = LocalDateTime.now();
+        logger.info("Order analytics rebuilt with {} orders and {} items in {} ms",
+                loader.columns.size(), loader.columns.itemCount(), System.currentTimeMillis() - start);
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.refresh-ms:5000}",
+               initialDelayString = "${app.analytics.refresh-ms:5000}")
+    @Transactional(readOnly = true)
+    public synchronized void refresh() {
+        if (columns == null) {
+            return;
+        }
+        Loader loader = new Loader();
+        if (loadedThroughCreatedAt == null) {
+            cursorTemplate.query(REBUILD_SQL, loader, Timestamp.valueOf(settledBefore()));
+        } else {
+            Timestamp after = Timestamp.valueOf(loadedThroughCreatedAt);
+            cursorTemplate.query(APPEND_SQL, loader, after, after, loadedThroughId, Timestamp.valueOf(settledBefore()));
+        }
+
+        lock.writeLock().lock();
+        try {
+            columns.appendAll(loader.columns);
+            applyPendingChanges();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (loader.lastCreatedAt != null) {
+            loadedThroughCreatedAt = loader.lastCreatedAt;
+            loadedThroughId = loader.lastId;
+        }
+    }
+
+    private LocalDateTime settledBefore() {
+        return LocalDateTime.now().minusNanos(settleMs * 1_000_000);
+    }
+
+    // Orders not loaded yet are skipped: the load that picks them up reads their committed state
+    private void applyPendingChanges() {
+        Change change;
+        while ((change = pendingChanges.poll()) != null) {
+            columns.update(change.orderId(), change.createdAt(), change.status(), change.discountFlags(),
+                    change.totalCents(), change.discountCents());
+        }
+    }
+
+    private static String groupName(OrderColumns current, OrderColumns.GroupBy groupBy, int group) {
+        return switch (groupBy) {
+            case NONE -> null;
+            case DISCOUNT -> group == 0 ? NO_DISCOUNT : Order.DiscountType.format(group);
+            case CATEGORY -> {
+                String category = current.category(group);
+                yield category == null ? UNCATEGORIZED : category;
+            }
+        };
+    }
+
+    // Rows arrive ordered by (created_at, id), one per item, so a new id starts a new order
+    private static class Loader implements RowCallbackHandler {
+        private final OrderColumns columns = new OrderColumns();
+        private LocalDateTime lastCreatedAt;
+        private long lastId = -1;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (id != lastId) {
+                LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+                String status = rs.getString("status");
+                int flags = rs.getInt("discount_flags");
+                if (rs.wasNull()) {
+                    flags = Order.DiscountType.parse(rs.getString("discount_type"));
+                }
+                columns.appendOrder(id, createdAt,
+                        status == null ? Order.OrderStatus.PENDING.ordinal() : Order.OrderStatus.valueOf(status).ordinal(),
+                        flags, cents(rs.getBigDecimal("total_amount")), cents(rs.getBigDecimal("discount_applied")));
+                lastId = id;
+                lastCreatedAt = createdAt;
+            }
+            BigDecimal unitPrice = rs.getBigDecimal("unit_price");
+            if (unitPrice != null) {
+                columns.appendItem(rs.getString("category"), Money.of(unitPrice).times(rs.getInt("quantity")).getCents());
+            }
+        }
+
+        private static long cents(BigDecimal amount) {
+            return amount == null ? 0 : Money.of(amount).getCents();
+        }
+    }
+
+    private record Change(long orderId, LocalDateTime createdAt, int status, int discountFlags,
+                          long totalCents, long discountCents) {
+    }
+}
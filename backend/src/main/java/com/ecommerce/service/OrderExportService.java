@@ -0,0 +1,236 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Order export in CSV (header line, then one line per order item; orders without items get one
+// line with empty item columns) or NDJSON (one order object per line with an items array).
+// Orders are read from a single forward-only cursor, fetch-size rows per round trip, and items
+// are fetched with one query per chunk of orders. Only the current chunk is held in memory.
+// A failed write, e.g. the client went away, ends the cursor query and rolls back.
+@Service
+public class OrderExportService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    private static final String ORDERS_SQL =
+            "SELECT id, user_id, order_date, status, total_amount, discount_applied, discount_flags, discount_type, " +
+            "created_at, is_visible FROM orders WHERE order_date >= ? AND order_date < ? ORDER BY order_date, id";
+    private static final String ITEMS_SQL =
+            "SELECT order_id, product_id, product_name, quantity, unit_price FROM order_items " +
+            "WHERE order_id IN (%s) ORDER BY order_id, id";
+    private static final List<String> CSV_COLUMNS = List.of("order_id", "user_id", "order_date", "status",
+            "total_amount", "discount_applied", "discount_type", "created_at", "visible",
+            "product_id", "product_name", "quantity", "unit_price");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.order-export.fetch-size:1000}")
+    private int fetchSize;
+
+    // Orders whose items are fetched together
+    @Value("${app.order-export.chunk-size:500}")
+    private int chunkSize;
+
+    private JdbcTemplate cursorTemplate;
+
+    @PostConstruct
+    public void init() {
+        cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursorTemplate.setFetchSize(fetchSize);
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        String normalized = format == null ? "" : format.toLowerCase(Locale.ROOT);
+        return normalized.equals("csv") || normalized.equals("ndjson");
+    }
+
+    // Orders with order_date in [start, end), oldest first
+    @Transactional(readOnly = true, rollbackFor = IOException.class)
+    public void exportOrders(OutputStream out, LocalDateTime start, LocalDateTime end, String format) throws IOException {
+        if (!isSupportedFormat(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        boolean csv = format.equalsIgnoreCase("csv");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        ChunkWriter chunks = new ChunkWriter(writer, csv ? null : objectMapper.getFactory().createGenerator(writer));
+        if (csv) {
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write('\n');
+        }
+        try {
+            cursorTemplate.query(ORDERS_SQL, chunks, Timestamp.valueOf(start), Timestamp.valueOf(end));
+            chunks.flushChunk();
+        } catch (UncheckedIOException e) {
+            logger.info("Order export stopped after {} orders: {}", chunks.exported, e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.flush();
+        logger.info("Exported {} orders from {} to {}", chunks.exported, start, end);
+    }
+
+    private Map<Long, List<ExportItem>> loadItems(List<ExportOrder> orders) {
+        List<Object> ids = new ArrayList<>(orders.size());
+        for (ExportOrder order : orders) {
+            ids.add(order.id());
+        }
+        Map<Long, List<ExportItem>> items = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query(String.format(ITEMS_SQL, placeholders), rs -> {
+            items.computeIfAbsent(rs.getLong("order_id"), id -> new ArrayList<>())
+                    .add(new ExportItem(rs.getLong("product_id"), rs.getString("product_name"),
+                            rs.getInt("quantity"), rs.getBigDecimal("unit_price")));
+        }, ids.toArray());
+        return items;
+    }
+
+    private static BigDecimal orZero(BigDecimal amount) {
+        return amount == null ? BigDecimal.ZERO : amount;
+    }
+
+    private static String csvLine(ExportOrder order, ExportItem item) {
+        return String.join(",", String.valueOf(order.id()), String.valueOf(order.userId()),
+                String.valueOf(order.orderDate()), order.status(), order.totalAmount().toPlainString(),
+                order.discountApplied().toPlainString(), csvField(order.discountType()),
+                order.createdAt() == null ? "" : order.createdAt().toString(), String.valueOf(order.visible()),
+                item == null ? "" : String.valueOf(item.productId()),
+                item == null ? "" : csvField(item.productName()),
+                item == null ? "" : String.valueOf(item.quantity()),
+                item == null ? "" : item.unitPrice().toPlainString());
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        // Line breaks are flattened so every row stays on one line
+        String flat = value.replace("\r", " ").replace("\n", " ");
+        if (flat.contains(",") || flat.contains("\"")) {
+            return "\"" + flat.replace("\"", "\"\"") + "\"";
+        }
+        return flat;
+    }
+
+    private static void writeJson(JsonGenerator json, ExportOrder order, List<ExportItem> items) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("orderId", order.id());
+        json.writeNumberField("userId", order.userId());
+        json.writeStringField("orderDate", String.valueOf(order.orderDate()));
+        json.writeStringField("status", order.status());
+        json.writeNumberField("totalAmount", order.totalAmount());
+        json.writeNumberField("discountApplied", order.discountApplied());
+        json.writeStringField("discountType", order.discountType());
+        json.writeStringField("createdAt", order.createdAt() == null ? null : order.createdAt().toString());
+        json.writeBooleanField("visible", order.visible());
+        json.writeArrayFieldStart("items");
+        for (ExportItem item : items) {
+            json.writeStartObject();
+            json.writeNumberField("productId", item.productId());
+            json.writeStringField("productName", item.productName());
+            json.writeNumberField("quantity", item.quantity());
+            json.writeNumberField("unitPrice", item.unitPrice());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    // Buffers one chunk of orders from the cursor, then writes it out with its items
+    private class ChunkWriter implements RowCallbackHandler {
+        private final Writer writer;
+        private final JsonGenerator json;
+        private final List<ExportOrder> chunk = new ArrayList<>(chunkSize);
+        private long exported;
+
+        ChunkWriter(Writer writer, JsonGenerator json) {
+            this.writer = writer;
+            this.json = json;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int flags = rs.getInt("discount_flags");
+            String discountType = rs.wasNull() ? rs.getString("discount_type") : Order.DiscountType.format(flags);
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            chunk.add(new ExportOrder(rs.getLong("id"), rs.getLong("user_id"),
+                    rs.getTimestamp("order_date").toLocalDateTime(), rs.getString("status"),
+                    rs.getBigDecimal("total_amount"), orZero(rs.getBigDecimal("discount_applied")),
+                    discountType == null || discountType.isEmpty() ? null : discountType,
+                    createdAt == null ? null : createdAt.toLocalDateTime(), rs.getBoolean("is_visible")));
+            if (chunk.size() == chunkSize) {
+                flushChunk();
+            }
+        }
+
+        void flushChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            Map<Long, List<ExportItem>> items = loadItems(chunk);
+            try {
+                for (ExportOrder order : chunk) {
+                    List<ExportItem> orderItems = items.getOrDefault(order.id(), List.of());
+                    if (json != null) {
+                        writeJson(json, order, orderItems);
+                    } else if (orderItems.isEmpty()) {
+                        writer.write(csvLine(order, null));
+                        writer.write('\n');
+                    } else {
+                        for (ExportItem item : orderItems) {
+                            writer.write(csvLine(order, item));
+                            writer.write('\n');
+                        }
+                    }
+                }
+                if (json != null) {
+                    json.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            exported += chunk.size();
+            chunk.clear();
+        }
+    }
+
+    private record ExportOrder(long id, long userId, LocalDateTime orderDate, String status, BigDecimal totalAmount,
+                               BigDecimal discountApplied, String discountType, LocalDateTime createdAt,
+                               boolean visible) {
+    }
+
+    private record ExportItem(long productId, String productName, int quantity, BigDecimal unitPrice) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderRequest;
+import com.ecommerce.entity.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// Group commit for checkout: with app.order-intake.mode=group-commit, concurrent orders are
+// collected for a few milliseconds (or up to max-batch) and committed in one transaction
+@Service
+public class OrderIntakeService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Value("${app.order-intake.mode:direct}")
+    private String mode;
+
+    @Value("${app.order-intake.window-ms:5}")
+    private long windowMs;
+
+    @Value("${app.order-intake.max-batch:50}")
+    private int maxBatch;
+
+    @Value("${app.order-intake.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.order-intake.workers:2}")
+    private int workers;
+
+    private BlockingQueue<OrderService.PendingOrder> queue;
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!isGroupCommit()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::runWorker, "order-intake-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workerThreads.add(worker);
+        }
+    }
+
+    public Order createOrder(Long userId, OrderRequest request) {
+        if (!isGroupCommit() || !running) {
+            return orderService.createOrder(userId, request);
+        }
+        OrderService.PendingOrder pending = new OrderService.PendingOrder(userId, request);
+        if (!queue.offer(pending)) {
+            // Intake is saturated; commit this order on the caller's thread
+            return orderService.createOrder(userId, request);
+        }
+        try {
+            return pending.getCompletion().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workerThreads) {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private boolean isGroupCommit() {
+        return "group-commit".equalsIgnoreCase(mode);
+    }
+
+    private void runWorker() {
+        List<OrderService.PendingOrder> window = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderService.PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                window.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (window.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    OrderService.PendingOrder next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    window.add(next);
+                }
+                commit(window);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                commit(window);
+                return;
+            } finally {
+                window.clear();
+            }
+        }
+    }
+
+    private void commit(List<OrderService.PendingOrder> window) {
+        if (window.isEmpty()) {
+            return;
+        }
+        try {
+            orderService.createOrders(List.copyOf(window));
+        } catch (RuntimeException e) {
+            // The shared transaction did not commit; replay every order in its own transaction
+            logger.warn("Group commit of {} orders failed, replaying them one by one", window.size(), e);
+            for (OrderService.PendingOrder pending : window) {
+                pending.reset();
+                try {
+                    pending.setResult(orderService.createOrder(pending.getUserId(), pending.getRequest()));
+                } catch (RuntimeException orderFailure) {
+                    pending.setFailure(orderFailure);
+                }
+            }
+        }
+        for (OrderService.PendingOrder pending : window) {
+            if (pending.getFailure() != null) {
+                pending.getCompletion().completeExceptionally(pending.getFailure());
+            } else {
+                pending.getCompletion().complete(pending.getResult());
+            }
+        }
+    }
+}
@@ -1,22 +1,50 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cache.BoundedCache;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.DiscountRunSummary;
+import com.ecommerce.dto.OrderQuote;
 import com.ecommerce.dto.OrderRequest;
+import com.ecommerce.dto.PageCursor;
 import com.ecommerce.entity.*;
+import com.ecommerce.pricing.Money;
 import com.ecommerce.repository.OrderRepository;
 import com.ecommerce.repository.ProductRepository;
 import com.ecommerce.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 @Service
 @Transactional
@@ -39,112 +67,307 @@ public class OrderService {
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private CampaignService campaignService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private TopCustomerService topCustomerService;
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Value("${app.discount.chunk-size:500}")
+    private int discountChunkSize;
+
+    @Value("${app.quote.cache-max-entries:10000}")
+    private int quoteCacheMaxEntries;
+
+    @Value("${app.quote.cache-ttl-seconds:30}")
+    private long quoteCacheTtlSeconds;
+
+    private BoundedCache<String, OrderQuote> quoteCache;
+
+    @PostConstruct
+    public void initQuoteCache() {
+        quoteCache = new BoundedCache<>(quoteCacheMaxEntries, Duration.ofSeconds(quoteCacheTtlSeconds));
+    }
+
     public Order createOrder(Long userId, OrderRequest request) {
-        return createOrder(userId, request, null);
+        return placeOrder(userId, request);
+    }
+
+    // Creates a whole intake window in one transaction. An order that fails is reported on its
+    // entry and does not affect the others; the caller commits or replays the window.
+    // Orders for unknown products are failed before any of them is placed: that error would come
+    // out of the transactional reserveStock and mark the shared transaction rollback-only. A
+    // failure inside another transactional call (an audit or database error) still does, and the
+    // caller then replays the window one order per transaction.
+    public void createOrders(List<PendingOrder> batch) {
+        Set<Long> productIds = new HashSet<>();
+        for (PendingOrder pending : batch) {
+            for (OrderRequest.OrderItemRequest item : pending.getRequest().getItems()) {
+                productIds.add(item.getProductId());
+            }
+        }
+        // Lock the union in id order first so concurrent windows cannot deadlock each other
+        Set<Long> existing = productService.lockProducts(productIds);
+
+        for (PendingOrder pending : batch) {
+            Long missing = firstMissingProduct(pending.getRequest(), existing);
+            if (missing != null) {
+                pending.setFailure(new RuntimeException("Product not found with id: " + missing));
+                continue;
+            }
+            try {
+                pending.setResult(placeOrder(pending.getUserId(), pending.getRequest()));
+            } catch (RuntimeException e) {
+                pending.setFailure(e);
+            }
+        }
+    }
+
+    private static Long firstMissingProduct(OrderRequest request, Set<Long> existing) {
+        Set<Long> productIds = new TreeSet<>();
+        for (OrderRequest.OrderItemRequest item : request.getItems()) {
+            productIds.add(item.getProductId());
+        }
+        for (Long productId : productIds) {
+            if (!existing.contains(productId)) {
+                return productId;
+            }
+        }
+        return null;
     }
 
     public List<Order> applyRandomDiscount(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Order> ordersInRange = orderRepository.findByOrderDateBetweenAndStatus(
+        return applyRandomDiscount(startDate, endDate, 1, null);
+    }
+
+    // Draws up to count distinct winners by offset into the eligible set, so only the winners are
+    // ever loaded. The same seed over the same data reproduces the draw.
+    public List<Order> applyRandomDiscount(LocalDateTime startDate, LocalDateTime endDate, int count, Long seed) {
+        if (count < 1) {
+            throw new RuntimeException("count must be at least 1");
+        }
+        long eligible = orderRepository.countRandomDiscountCandidates(
                 startDate, endDate, Order.OrderStatus.PENDING);
-        
-        List<Order> eligibleOrders = ordersInRange.stream()
-                .filter(order -> order.getIsVisible() && 
-                    (order.getDiscountType() == null || 
-                     (order.getDiscountType().equals("FREQUENT_5") && !order.getDiscountType().contains("RANDOM_50"))))
-                .collect(java.util.stream.Collectors.toList());
-        
-        if (eligibleOrders.isEmpty()) {
+        if (eligible == 0) {
             return new ArrayList<>();
         }
-        
-        // Select one random order
-        Random random = new Random();
-        Order selectedOrder = eligibleOrders.get(random.nextInt(eligibleOrders.size()));
-        
-        User orderUser = userRepository.findById(selectedOrder.getUserId()).orElse(null);
-        BigDecimal originalTotal = selectedOrder.getTotalAmount().add(selectedOrder.getDiscountApplied());
-        BigDecimal newDiscount = discountService.calculateDiscount(originalTotal, true, orderUser);
-        
-        selectedOrder.setTotalAmount(originalTotal.subtract(newDiscount));
-        selectedOrder.setDiscountApplied(newDiscount);
-        
-        // Set combined discount type
-        String discountType = "RANDOM_50";
-        if (orderUser != null && orderUser.getIsFrequentCustomer()) {
-            discountType = "FREQUENT_5,RANDOM_50";
+
+        RandomGenerator random = seed != null ? new SplittableRandom(seed) : ThreadLocalRandom.current();
+        Set<Long> offsets = pickDistinctOffsets(eligible, (int) Math.min(count, eligible), random);
+
+        // Resolve every offset before updating anything: a discounted order leaves the
+        // candidate set and would shift the offsets that follow it
+        List<Order> winners = new ArrayList<>();
+        for (Long offset : offsets) {
+            List<Order> page = orderRepository.findRandomDiscountCandidates(startDate, endDate,
+                    Order.OrderStatus.PENDING, PageRequest.of(Math.toIntExact(offset), 1));
+            if (!page.isEmpty()) {
+                winners.add(page.get(0));
+            }
         }
-        selectedOrder.setDiscountType(discountType);
-        
+
+        Set<Long> userIds = new HashSet<>();
+        for (Order order : winners) {
+            userIds.add(order.getUserId());
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+
         List<Order> updatedOrders = new ArrayList<>();
-        updatedOrders.add(orderRepository.save(selectedOrder));
+        for (Order selectedOrder : winners) {
+            User orderUser = users.get(selectedOrder.getUserId());
+            Money originalTotal = Money.of(selectedOrder.getTotalAmount()).plus(Money.of(selectedOrder.getDiscountApplied()));
+            Money newDiscount = discountService.calculateDiscount(originalTotal, true, orderUser);
+
+            selectedOrder.setTotalAmount(originalTotal.minus(newDiscount).toBigDecimal());
+            selectedOrder.setDiscountApplied(newDiscount.toBigDecimal());
+
+            // Set combined discount type
+            int discountFlags = Order.DiscountType.RANDOM_50.bit();
+            if (orderUser != null && orderUser.getIsFrequentCustomer()) {
+                discountFlags |= Order.DiscountType.FREQUENT_5.bit();
+            }
+            selectedOrder.setDiscountFlags(discountFlags);
+
+            updatedOrders.add(orderRepository.save(selectedOrder));
+            orderAnalyticsService.orderChanged(selectedOrder);
+        }
         return updatedOrders;
     }
 
-    public List<Order> applyTimeDiscount(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Order> ordersInRange = orderRepository.findByOrderDateBetweenAndStatus(
-                startDate, endDate, Order.OrderStatus.PENDING);
-        
-        List<Order> updatedOrders = new ArrayList<>();
-        for (Order order : ordersInRange) {
-            if (order.getIsVisible() && (order.getDiscountType() == null || 
-                (order.getDiscountType().equals("FREQUENT_5") && !order.getDiscountType().contains("TIME_10")))) {
-                User orderUser = userRepository.findById(order.getUserId()).orElse(null);
-                BigDecimal originalTotal = order.getTotalAmount().add(order.getDiscountApplied());
-                BigDecimal newDiscount = discountService.calculateDiscount(originalTotal, false, orderUser);
-                
-                order.setTotalAmount(originalTotal.subtract(newDiscount));
-                order.setDiscountApplied(newDiscount);
-                
-                // Set combined discount type
-                String discountType = "TIME_10";
-                if (orderUser != null && orderUser.getIsFrequentCustomer()) {
-                    discountType = "FREQUENT_5,TIME_10";
-                }
-                order.setDiscountType(discountType);
-                
-                updatedOrders.add(orderRepository.save(order));
+    // Floyd's algorithm: k distinct values from [0, n) in O(k) time and space
+    static Set<Long> pickDistinctOffsets(long n, int k, RandomGenerator random) {
+        Set<Long> picked = new TreeSet<>();
+        for (long j = n - k; j < n; j++) {
+            long candidate = random.nextLong(j + 1);
+            if (!picked.add(candidate)) {
+                picked.add(j);
             }
         }
-        return updatedOrders;
+        return picked;
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DiscountRunSummary applyTimeDiscount(LocalDateTime startDate, LocalDateTime endDate) {
+        return applyTimeDiscount(startDate, endDate, 0L);
     }
 
-    private Order createOrder(Long userId, OrderRequest request, String discountType) {
+    // Walks the range in keyset chunks, committing each chunk on its own. Discounted orders no
+    // longer match the candidate query, so a rerun (or resumeAfterId) picks up where a run stopped.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DiscountRunSummary applyTimeDiscount(LocalDateTime startDate, LocalDateTime endDate, Long resumeAfterId) {
+        DiscountRunSummary summary = new DiscountRunSummary(resumeAfterId == null ? 0L : resumeAfterId);
+        while (true) {
+            Long afterId = summary.getLastOrderId();
+            Integer processed = transactionTemplate.execute(status ->
+                    applyTimeDiscountChunk(startDate, endDate, afterId, summary));
+            if (processed == null || processed < discountChunkSize) {
+                break;
+            }
+        }
+        summary.setCompleted(true);
+        return summary;
+    }
+
+    private int applyTimeDiscountChunk(LocalDateTime startDate, LocalDateTime endDate, Long afterId,
+                                       DiscountRunSummary summary) {
+        List<Order> chunk = orderRepository.findTimeDiscountCandidates(startDate, endDate,
+                Order.OrderStatus.PENDING, afterId, PageRequest.of(0, discountChunkSize));
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        for (Order order : chunk) {
+            userIds.add(order.getUserId());
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+
+        for (Order order : chunk) {
+            User orderUser = users.get(order.getUserId());
+            Money originalTotal = Money.of(order.getTotalAmount()).plus(Money.of(order.getDiscountApplied()));
+            Money newDiscount = discountService.calculateDiscount(originalTotal, false, orderUser);
+
+            order.setTotalAmount(originalTotal.minus(newDiscount).toBigDecimal());
+            order.setDiscountApplied(newDiscount.toBigDecimal());
+
+            // Set combined discount type
+            int discountFlags = Order.DiscountType.TIME_10.bit();
+            if (orderUser != null && orderUser.getIsFrequentCustomer()) {
+                discountFlags |= Order.DiscountType.FREQUENT_5.bit();
+            }
+            order.setDiscountFlags(discountFlags);
+            orderAnalyticsService.orderChanged(order);
+            summary.recordDiscount(newDiscount);
+        }
+
+        // The dirty orders go out as one batch of UPDATEs; clearing keeps the persistence
+        // context from growing across chunks
+        entityManager.flush();
+        entityManager.clear();
+
+        summary.recordChunk(chunk.size(), chunk.get(chunk.size() - 1).getId());
+        return chunk.size();
+    }
+
+    private Order placeOrder(Long userId, OrderRequest request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Order order = new Order(userId, BigDecimal.ZERO, LocalDateTime.now());
-        order.setDiscountType(discountType);
+        Map<Long, Integer> quantities = mergeLines(request);
+        Map<Long, Product> products = productService.reserveStock(quantities);
+        Order order = priceOrder(userId, user, quantities, products);
+
+        Order savedOrder = orderRepository.save(order);
+        auditService.logAction("Order", savedOrder.getId(), "CREATE", userId, null, savedOrder.toString());
+
+        return savedOrder;
+    }
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
+    // Prices the cart exactly as placeOrder would, without reserving stock or writing anything.
+    // Results are memoized per cart, discount status, campaign version and catalog version.
+    @Transactional(readOnly = true)
+    public OrderQuote quote(Long userId, OrderRequest request) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Map<Long, Integer> quantities = mergeLines(request);
+        String key = cartHash(quantities) + "|" + user.getIsFrequentCustomer() + "|"
+                + campaignService.getIndex().getVersion() + "|" + productService.getCatalogVersion();
+
+        OrderQuote cached = quoteCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Map<Long, Product> products = productService.getProductsForPricing(quantities.keySet());
+        OrderQuote quote = new OrderQuote(priceOrder(userId, user, quantities, products));
+        quoteCache.put(key, quote);
+        return quote;
+    }
 
+    // Duplicate lines for the same product are merged so each product is locked and decremented once
+    private Map<Long, Integer> mergeLines(OrderRequest request) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (OrderRequest.OrderItemRequest itemRequest : request.getItems()) {
-            Product product = productService.getProductById(itemRequest.getProductId());
-            productService.updateStock(product.getId(), itemRequest.getQuantity());
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Shared by placeOrder and quote so a quote always matches what the order would be charged
+    private Order priceOrder(Long userId, User user, Map<Long, Integer> quantities, Map<Long, Product> products) {
+        Order order = new Order(userId, BigDecimal.ZERO, LocalDateTime.now());
+
+        Money totalAmount = Money.ZERO;
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = products.get(line.getKey());
 
             OrderItem orderItem = new OrderItem(order, product.getId(), product.getName(),
-                    itemRequest.getQuantity(), product.getPrice());
+                    line.getValue(), product.getPrice());
             order.getItems().add(orderItem);
-
-            totalAmount = totalAmount.add(orderItem.getSubtotal());
+            totalAmount = totalAmount.plus(orderItem.subtotal());
         }
 
         // Only apply frequent customer discount automatically
-        BigDecimal discount = BigDecimal.ZERO;
-        String finalDiscountType = null;
+        Money discount = Money.ZERO;
+        int discountFlags = 0;
         
         if (user.getIsFrequentCustomer()) {
-            discount = totalAmount.multiply(BigDecimal.valueOf(0.05)); // 5%
-            finalDiscountType = "FREQUENT_5";
+            discount = totalAmount.percentage(DiscountSnapshot.FREQUENT_CUSTOMER_BASIS_POINTS); // 5%
+            discountFlags = Order.DiscountType.FREQUENT_5.bit();
         }
         
-        order.setDiscountType(finalDiscountType);
-        order.setTotalAmount(totalAmount.subtract(discount));
-        order.setDiscountApplied(discount);
-
-        Order savedOrder = orderRepository.save(order);
-        auditService.logAction("Order", savedOrder.getId(), "CREATE", userId, null, savedOrder.toString());
+        order.setDiscountFlags(discountFlags);
+        order.setTotalAmount(totalAmount.minus(discount).toBigDecimal());
+        order.setDiscountApplied(discount.toBigDecimal());
+        return order;
+    }
 
-        return savedOrder;
+    private static String cartHash(Map<Long, Integer> quantities) {
+        Map<Long, Integer> normalized = new TreeMap<>(quantities);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public Page<Order> getUserOrders(Long userId, Pageable pageable) {
@@ -152,13 +375,16 @@ public class OrderService {
     }
 
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status, Long userId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         Order.OrderStatus oldStatus = order.getStatus();
+        salesRollupService.recordStatusChange(order, oldStatus, status);
+        topCustomerService.recordStatusChange(order, oldStatus, status);
         order.setStatus(status);
         
         Order updatedOrder = orderRepository.save(order);
+        orderAnalyticsService.orderChanged(updatedOrder);
         auditService.logAction("Order", orderId, "STATUS_UPDATE", userId, 
                 "Status: " + oldStatus, "Status: " + status);
         
@@ -169,6 +395,35 @@ public class OrderService {
         return orderRepository.findByIsVisibleTrueOrderByCreatedAtDesc(pageable);
     }
 
+    // Keyset listing: no OFFSET, and the COUNT only runs when asked for
+    @Transactional(readOnly = true)
+    public CursorPage<Order> getAllOrders(String cursor, int size, boolean includeTotal) {
+        Pageable limit = PageRequest.of(0, CursorPage.clampSize(size));
+        Slice<Order> slice;
+        if (cursor == null) {
+            slice = orderRepository.findByIsVisibleTrueOrderByCreatedAtDescIdDesc(limit);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            slice = orderRepository.findVisibleBefore(position.getCreatedAt(), position.getId(), limit);
+        }
+        Long total = includeTotal ? orderRepository.countByIsVisibleTrue() : null;
+        return CursorPage.of(slice, order -> new PageCursor(order.getCreatedAt(), order.getId()), total);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Order> getUserOrders(Long userId, String cursor, int size, boolean includeTotal) {
+        Pageable limit = PageRequest.of(0, CursorPage.clampSize(size));
+        Slice<Order> slice;
+        if (cursor == null) {
+            slice = orderRepository.findByUserIdAndIsVisibleTrueOrderByCreatedAtDescIdDesc(userId, limit);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            slice = orderRepository.findVisibleByUserBefore(userId, position.getCreatedAt(), position.getId(), limit);
+        }
+        Long total = includeTotal ? orderRepository.countByUserIdAndIsVisibleTrue(userId) : null;
+        return CursorPage.of(slice, order -> new PageCursor(order.getCreatedAt(), order.getId()), total);
+    }
+
     public void deleteOrder(Long orderId, Long userId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
@@ -180,7 +435,35 @@ public class OrderService {
                 "Visible: true", "Visible: false");
     }
 
-    public List<Object[]> getTopCustomers() {
-        return orderRepository.findTopCustomersByOrderCount(PageRequest.of(0, 5));
+    public List<Object[]> getTopCustomers(TopCustomerService.Window window) {
+        return topCustomerService.topCustomers(window, 5);
+    }
+
+    public static class PendingOrder {
+        private final Long userId;
+        private final OrderRequest request;
+        private final CompletableFuture<Order> completion = new CompletableFuture<>();
+        private Order result;
+        private RuntimeException failure;
+
+        public PendingOrder(Long userId, OrderRequest request) {
+            this.userId = userId;
+            this.request = request;
+        }
+
+        public Long getUserId() { return userId; }
+        public OrderRequest getRequest() { return request; }
+        public CompletableFuture<Order> getCompletion() { return completion; }
+
+        public Order getResult() { return result; }
+        public void setResult(Order result) { this.result = result; }
+
+        public RuntimeException getFailure() { return failure; }
+        public void setFailure(RuntimeException failure) { this.failure = failure; }
+
+        public void reset() {
+            this.result = null;
+            this.failure = null;
+        }
     }
 }
\ No newline at end of file
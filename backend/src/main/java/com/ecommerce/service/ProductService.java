@@ -1,47 +1,151 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cache.ProductCache;
+import com.ecommerce.dto.CatalogRow;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.PageCursor;
 import com.ecommerce.dto.ProductRequest;
 import com.ecommerce.entity.Product;
+import com.ecommerce.exception.InsufficientStockException;
 import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.search.ProductSearchIndex;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ProductService {
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock = stock - ?, updated_at = ?, version = version + 1 WHERE id = ? AND stock >= ?";
+    // Bulk import writes by sku; an imported row is active again even if it had been deleted
+    private static final String UPSERT_BY_SKU_SQL =
+            "INSERT INTO products (sku, name, description, price, category, stock, is_active, version, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, true, 0, ?, ?) " +
+            "ON CONFLICT (sku) DO UPDATE SET name = EXCLUDED.name, description = EXCLUDED.description, " +
+            "price = EXCLUDED.price, category = EXCLUDED.category, stock = EXCLUDED.stock, " +
+            "is_active = true, version = products.version + 1, updated_at = EXCLUDED.updated_at";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    // Bumped after every committed product create, update or delete; seeded with the boot time
+    // so versions from different runs do not collide
+    private final AtomicLong catalogVersion = new AtomicLong(System.currentTimeMillis());
+
+    // Bumped after committed stock decrements, and in ledger mode after each flush that writes
+    // stock; listings show stock, so their cache keys carry it too
+    private final AtomicLong stockVersion = new AtomicLong();
+
+    // In ledger mode stock reaches the rows only when the ledger flushes; until then a cached
+    // product or listing page would keep showing the old stock
+    @PostConstruct
+    public void init() {
+        inventoryLedger.onRowsWritten(this::stockChanged);
+    }
+
     public Product createProduct(ProductRequest request) {
         Product product = new Product(request.getName(), request.getDescription(),
                 request.getPrice(), request.getCategory(), request.getStock());
         
         Product savedProduct = productRepository.save(product);
+        // Every product needs a sku to round-trip through the catalog export and import
+        String sku = "P" + savedProduct.getId();
+        if (!productRepository.existsBySku(sku)) {
+            savedProduct.setSku(sku);
+        }
         auditService.logAction("Product", savedProduct.getId(), "CREATE", null, null, savedProduct.toString());
+        catalogChanged(savedProduct);
         return savedProduct;
     }
 
     public Page<Product> getAllProducts(Pageable pageable) {
-        return productRepository.findByIsActiveTrue(pageable);
+        String key = catalogVersion.get() + ":" + stockVersion.get() + ":" + pageable.getPageNumber()
+                + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+        return productCache.getPage(key, () -> productRepository.findByIsActiveTrue(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Product> getActiveProducts(String cursor, int size, boolean includeTotal) {
+        Pageable limit = PageRequest.of(0, CursorPage.clampSize(size));
+        Slice<Product> slice;
+        if (cursor == null) {
+            slice = productRepository.findByIsActiveTrueOrderByCreatedAtDescIdDesc(limit);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            slice = productRepository.findActiveBefore(position.getCreatedAt(), position.getId(), limit);
+        }
+        Long total = includeTotal ? productRepository.countByIsActiveTrue() : null;
+        return CursorPage.of(slice, product -> new PageCursor(product.getCreatedAt(), product.getId()), total);
     }
 
     public Product getProductById(Long id) {
+        return productCache.getProduct(id, () -> loadProduct(id));
+    }
+
+    // Writes always start from the database row, never from the cache
+    private Product loadProduct(Long id) {
         return productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
     }
 
     public Product updateProduct(Long id, ProductRequest request) {
-        Product product = getProductById(id);
+        Product product = loadProduct(id);
         String oldValues = product.toString();
         
         product.setName(request.getName());
@@ -51,35 +155,266 @@ public class ProductService {
         product.setStock(request.getStock());
         
         Product updatedProduct = productRepository.save(product);
+        inventoryLedger.reset(updatedProduct);
         auditService.logAction("Product", id, "UPDATE", null, oldValues, updatedProduct.toString());
+        catalogChanged(updatedProduct);
         return updatedProduct;
     }
 
     public void deleteProduct(Long id) {
-        Product product = getProductById(id);
+        Product product = loadProduct(id);
         product.setIsActive(false);
         productRepository.save(product);
+        inventoryLedger.rowWritten(product);
         auditService.logAction("Product", id, "DELETE", null, product.toString(), null);
+        catalogChanged(product);
     }
 
     public Page<Product> searchProducts(String name, String category, BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
-        return productRepository.searchProducts(name, category, minPrice, maxPrice, pageable);
+        if (!searchIndex.isReady()) {
+            return productRepository.searchProducts(name, category, minPrice, maxPrice, pageable);
+        }
+        // The index resolves the page of ids; only those rows are loaded
+        ProductSearchIndex.SearchResult result = searchIndex.search(name, category, minPrice, maxPrice,
+                (int) pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(result.productIds())) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> content = new ArrayList<>(result.productIds().size());
+        for (Long productId : result.productIds()) {
+            Product product = byId.get(productId);
+            if (product != null) {
+                content.add(product);
+            }
+        }
+        return new PageImpl<>(content, pageable, result.total());
+    }
+
+    // One import chunk: a single JDBC batch of upserts, one audit summary, and the caches,
+    // search index and stock ledger brought up to date once the chunk commits
+    public int upsertCatalogChunk(List<CatalogRow> rows, long firstLine, long lastLine) {
+        // A sku repeated within a chunk keeps its last row; Postgres rejects an upsert
+        // that touches the same row twice in one rewritten batch
+        Map<String, CatalogRow> bySku = new LinkedHashMap<>();
+        for (CatalogRow row : rows) {
+            bySku.put(row.getSku(), row);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batchArgs = new ArrayList<>(bySku.size());
+        for (CatalogRow row : bySku.values()) {
+            batchArgs.add(new Object[]{row.getSku(), row.getName(), row.getDescription(), row.getPrice(),
+                    row.getCategory(), row.getStock(), now, now});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_BY_SKU_SQL, batchArgs);
+
+        List<Product> products = productRepository.findBySkuIn(bySku.keySet());
+        for (Product product : products) {
+            inventoryLedger.reset(product);
+        }
+        auditService.logAction("Product", null, "BULK_UPSERT", null, null,
+                "lines " + firstLine + "-" + lastLine + ": " + bySku.size() + " products upserted");
+        catalogChanged(products);
+        return bySku.size();
     }
 
     public List<Object[]> getTopSellingProducts() {
-        return productRepository.findTopSellingProducts(PageRequest.of(0, 5));
+        return salesRollupService.topSelling(5);
+    }
+
+    // Writes the active catalog as a JSON array one row at a time; each row is detached once
+    // written, so neither the persistence context nor the response grows with the catalog
+    @Transactional(readOnly = true)
+    public void writeActiveProducts(OutputStream out) throws IOException {
+        try (Stream<Product> products = productRepository.streamByIsActiveTrue();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            Iterator<Product> rows = products.iterator();
+            while (rows.hasNext()) {
+                Product product = rows.next();
+                generator.writeObject(product);
+                entityManager.detach(product);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion.get();
     }
 
-    public List<Product> getActiveProducts() {
-        return productRepository.findByIsActiveTrue();
+    // Changes whenever any listing could change: product writes and committed stock decrements
+    public String getListingVersion() {
+        return catalogVersion.get() + "-" + stockVersion.get();
+    }
+
+    // Loads the products of a cart without locking or reserving anything
+    @Transactional(readOnly = true)
+    public Map<Long, Product> getProductsForPricing(Collection<Long> productIds) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        for (Long productId : new TreeSet<>(productIds)) {
+            if (!products.containsKey(productId)) {
+                throw new RuntimeException("Product not found with id: " + productId);
+            }
+        }
+        return products;
     }
 
     public void updateStock(Long productId, Integer quantity) {
-        Product product = getProductById(productId);
+        if (inventoryLedger.isEnabled()) {
+            reserveStock(Map.of(productId, quantity));
+            return;
+        }
+        Product product = loadProduct(productId);
         if (product.getStock() < quantity) {
             throw new RuntimeException("No hay stock suficiente para el producto: " + product.getName() + ". Stock disponible: " + product.getStock());
         }
         product.setStock(product.getStock() - quantity);
         productRepository.save(product);
+        stockChanged(List.of(productId));
+    }
+
+    // Locks the whole cart in one query, validates every line before writing and decrements
+    // all lines as one JDBC batch of conditional updates
+    // A shortage is detected before anything is written, so it must not poison a surrounding
+    // transaction that is committing other orders (see OrderService.createOrders)
+    @Transactional(noRollbackFor = InsufficientStockException.class)
+    public Map<Long, Product> reserveStock(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> lines = new TreeMap<>(quantities);
+        if (inventoryLedger.isEnabled()) {
+            return reserveFromLedger(lines);
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByIdForUpdate(lines.keySet())) {
+            products.put(product.getId(), product);
+        }
+
+        List<InsufficientStockException.Shortage> shortages = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product not found with id: " + line.getKey());
+            }
+            if (product.getStock() < line.getValue()) {
+                shortages.add(new InsufficientStockException.Shortage(product.getId(), product.getName(),
+                        line.getValue(), product.getStock()));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException(shortages);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batchArgs = new ArrayList<>(lines.size());
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            batchArgs.add(new Object[]{line.getValue(), now, line.getKey(), line.getValue()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, batchArgs);
+
+        int index = 0;
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (updated[index++] == 0) {
+                // Only reachable if the row lock was bypassed; the caller's transaction rolls the batch back
+                throw new IllegalStateException("Stock of product " + product.getId() + " changed while locked");
+            }
+            // The row was changed behind Hibernate's back, so keep the entity out of dirty checking
+            entityManager.detach(product);
+            product.setStock(product.getStock() - line.getValue());
+        }
+        stockChanged(lines.keySet());
+        return products;
+    }
+
+    private void catalogChanged(Product product) {
+        catalogChanged(List.of(product));
+    }
+
+    private void catalogChanged(List<Product> products) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishCatalogChange(products);
+                }
+            });
+        } else {
+            publishCatalogChange(products);
+        }
+    }
+
+    // The version moves last: a reader that sees the new version must also see the new index
+    private void publishCatalogChange(List<Product> products) {
+        for (Product product : products) {
+            productCache.invalidate(product.getId());
+            searchIndex.index(product);
+        }
+        catalogVersion.incrementAndGet();
+    }
+
+    private void stockChanged(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(productCache::invalidate);
+                    stockVersion.incrementAndGet();
+                }
+            });
+        } else {
+            ids.forEach(productCache::invalidate);
+            stockVersion.incrementAndGet();
+        }
+    }
+
+    // Takes the row locks of several carts up front in id order (in ledger mode there are none to
+    // take, so the rows are only read) and returns the ids of the products that exist
+    public Set<Long> lockProducts(Collection<Long> productIds) {
+        Set<Long> found = new HashSet<>();
+        if (productIds.isEmpty()) {
+            return found;
+        }
+        if (inventoryLedger.isEnabled()) {
+            found.addAll(productRepository.findExistingIds(productIds));
+            return found;
+        }
+        for (Product product : productRepository.findAllByIdForUpdate(new TreeSet<>(productIds))) {
+            found.add(product.getId());
+        }
+        return found;
+    }
+
+    // Ledger mode: no row locks, the counters decide and the ledger writes the deltas behind
+    private Map<Long, Product> reserveFromLedger(TreeMap<Long, Integer> lines) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(lines.keySet())) {
+            products.put(product.getId(), product);
+        }
+        for (Long productId : lines.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new RuntimeException("Product not found with id: " + productId);
+            }
+        }
+
+        Map<Long, Integer> shortages = inventoryLedger.reserve(lines);
+        if (!shortages.isEmpty()) {
+            List<InsufficientStockException.Shortage> details = new ArrayList<>();
+            shortages.forEach((productId, available) -> details.add(new InsufficientStockException.Shortage(
+                    productId, products.get(productId).getName(), lines.get(productId), available)));
+            throw new InsufficientStockException(details);
+        }
+
+        for (Product product : products.values()) {
+            entityManager.detach(product);
+            product.setStock(inventoryLedger.available(product.getId()));
+        }
+        stockChanged(lines.keySet());
+        return products;
     }
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import com.ecommerce.entity.ProductSales;
+import com.ecommerce.repository.ProductSalesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Units sold per product id across APPROVED orders. The product_sales table is moved by deltas
+// in the same transaction as each status change; an in-memory ranking mirrors it after commit
+// and serves top-N without touching order history. A periodic job recomputes both from orders.
+//
+// Every status change is stamped once its delta rows are written. A reconcile's totals include
+// exactly the changes stamped before it took its table lock, so a delta whose afterCommit runs
+// only after the reconciled totals were swapped in is skipped, and one applied in memory while
+// the reconcile ran is replayed on top of them.
+@Service
+@Transactional
+public class SalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final String APPLY_DELTA_SQL =
+            "INSERT INTO product_sales (product_id, product_name, quantity_sold, updated_at) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (product_id) DO UPDATE SET quantity_sold = product_sales.quantity_sold + EXCLUDED.quantity_sold, " +
+            "product_name = EXCLUDED.product_name, updated_at = EXCLUDED.updated_at";
+    private static final String INSERT_SQL =
+            "INSERT INTO product_sales (product_id, product_name, quantity_sold, updated_at) VALUES (?, ?, ?, ?)";
+
+    private static final Comparator<Ranked> BEST_SELLING_FIRST = Comparator
+            .comparingLong((Ranked ranked) -> ranked.quantity).reversed()
+            .thenComparingLong(ranked -> ranked.productId);
+
+    @Autowired
+    private ProductSalesRepository productSalesRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final Map<Long, Ranked> byProduct = new HashMap<>();
+    private final TreeSet<Ranked> ranking = new TreeSet<>(BEST_SELLING_FIRST);
+    private LocalDateTime reconciledAt;
+    // Changes stamped at or below this are already in the in-memory totals
+    private long reconciledThrough;
+    // Non-null while a reconcile runs: changes applied in memory meanwhile, by stamp
+    private TreeMap<Long, List<Delta>> appliedDuringReconcile;
+
+    private final AtomicLong stamps = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        meterRegistry.gauge("sales.rollup.products", this, service -> service.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        List<ProductSales> rows = productSalesRepository.findAll();
+        synchronized (this) {
+            replace(rows);
+        }
+        logger.info("Sales rollup loaded for {} products", rows.size());
+    }
+
+    // Called with the order row locked, inside the transaction that changes its status
+    public void recordStatusChange(Order order, Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        boolean wasApproved = oldStatus == Order.OrderStatus.APPROVED;
+        boolean isApproved = newStatus == Order.OrderStatus.APPROVED;
+        if (wasApproved == isApproved) {
+            return;
+        }
+        int sign = isApproved ? 1 : -1;
+        Map<Long, Delta> deltas = new LinkedHashMap<>();
+        for (OrderItem item : order.getItems()) {
+            deltas.computeIfAbsent(item.getProductId(), id -> new Delta(id, item.getProductName()))
+                    .quantity += (long) sign * item.getQuantity();
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        for (Delta delta : deltas.values()) {
+            batchArgs.add(new Object[]{delta.productId, delta.productName, delta.quantity, now});
+        }
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batchArgs);
+        // Stamped while this transaction holds product_sales rows, so a reconcile cannot have
+        // taken its table lock in between
+        long stamp = stamps.incrementAndGet();
+
+        List<Delta> committed = List.copyOf(deltas.values());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyInMemory(stamp, committed);
+                }
+            });
+        } else {
+            applyInMemory(stamp, committed);
+        }
+    }
+
+    // Rows are [productName, unitsSold, productId], best sellers first
+    public synchronized List<Object[]> topSelling(int limit) {
+        List<Object[]> top = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<Ranked> iterator = ranking.iterator();
+        while (iterator.hasNext() && top.size() < limit) {
+            Ranked ranked = iterator.next();
+            top.add(new Object[]{ranked.productName, ranked.quantity, ranked.productId});
+        }
+        return top;
+    }
+
+    public synchronized int size() {
+        return byProduct.size();
+    }
+
+    public synchronized LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+
+    // Recomputes the rollup from order history. The table lock makes concurrent status changes
+    // wait, so their deltas land on top of the recomputed totals instead of being lost.
+    @Scheduled(fixedDelayString = "${app.sales-rollup.reconcile-ms:3600000}",
+               initialDelayString = "${app.sales-rollup.reconcile-ms:3600000}")
+    public void reconcile() {
+        synchronized (this) {
+            appliedDuringReconcile = new TreeMap<>();
+        }
+        try {
+            swapInTotalsFromOrders();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                appliedDuringReconcile = null;
+            }
+            throw e;
+        }
+    }
+
+    private void swapInTotalsFromOrders() {
+        jdbcTemplate.execute("LOCK TABLE product_sales IN EXCLUSIVE MODE");
+        // Every change stamped so far has committed or rolled back before the lock was granted
+        long stamp = stamps.get();
+        List<Object[]> aggregates = productSalesRepository.aggregateApprovedSales();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<ProductSales> rows = new ArrayList<>(aggregates.size());
+        List<Object[]> batchArgs = new ArrayList<>(aggregates.size());
+        for (Object[] aggregate : aggregates) {
+            ProductSales row = new ProductSales((Long) aggregate[0], (String) aggregate[1],
+                    ((Number) aggregate[2]).longValue());
+            rows.add(row);
+            batchArgs.add(new Object[]{row.getProductId(), row.getProductName(), row.getQuantitySold(), now});
+        }
+        int drifted = countDrift(rows);
+        jdbcTemplate.update("DELETE FROM product_sales");
+        jdbcTemplate.batchUpdate(INSERT_SQL, batchArgs);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (SalesRollupService.this) {
+                    replace(rows);
+                    reconciledThrough = stamp;
+                    reconciledAt = LocalDateTime.now();
+                    appliedDuringReconcile.tailMap(stamp, false).values().forEach(SalesRollupService.this::apply);
+                }
+                if (drifted > 0) {
+                    logger.warn("Sales rollup reconciled {} products that had drifted", drifted);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (SalesRollupService.this) {
+                    appliedDuringReconcile = null;
+                }
+            }
+        });
+    }
+
+    private synchronized int countDrift(List<ProductSales> truth) {
+        int drifted = 0;
+        Map<Long, Long> expected = new HashMap<>();
+        for (ProductSales row : truth) {
+            expected.put(row.getProductId(), row.getQuantitySold());
+        }
+        for (Ranked ranked : byProduct.values()) {
+            if (!Long.valueOf(ranked.quantity).equals(expected.remove(ranked.productId))) {
+                drifted++;
+            }
+        }
+        return drifted + expected.size();
+    }
+
+    private synchronized void applyInMemory(long stamp, List<Delta> deltas) {
+        if (stamp <= reconciledThrough) {
+            return;
+        }
+        if (appliedDuringReconcile != null) {
+            appliedDuringReconcile.put(stamp, deltas);
+        }
+        apply(deltas);
+    }
+
+    // Caller holds this
+    private void apply(List<Delta> deltas) {
+        for (Delta delta : deltas) {
+            Ranked current = byProduct.remove(delta.productId);
+            if (current != null) {
+                ranking.remove(current);
+            }
+            long quantity = (current == null ? 0 : current.quantity) + delta.quantity;
+            Ranked updated = new Ranked(delta.productId, delta.productName, quantity);
+            byProduct.put(delta.productId, updated);
+            ranking.add(updated);
+        }
+    }
+
+    private void replace(List<ProductSales> rows) {
+        byProduct.clear();
+        ranking.clear();
+        for (ProductSales row : rows) {
+            Ranked ranked = new Ranked(row.getProductId(), row.getProductName(), row.getQuantitySold());
+            byProduct.put(ranked.productId, ranked);
+            ranking.add(ranked);
+        }
+    }
+
+    private static class Delta {
+        private final Long productId;
+        private final String productName;
+        private long quantity;
+
+        Delta(Long productId, String productName) {
+            this.productId = productId;
+            this.productName = productName;
+        }
+    }
+
+    // Immutable so it can sit in the TreeSet; an update replaces the entry
+    private static class Ranked {
+        private final long productId;
+        private final String productName;
+        private final long quantity;
+
+        Ranked(long productId, String productName, long quantity) {
+            this.productId = productId;
+            this.productName = productName;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.ecommerce.service;
+
+import com.ecommerce.analytics.SpaceSavingSketch;
+import com.ecommerce.analytics.WindowedTopK;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.User;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Customers with the most APPROVED orders, overall and over the last 24 hours and 30 days.
+// Space-Saving sketches keep memory at `capacity` counters per sketch; a reported count
+// overstates the true count by at most its error, and error <= approved orders / capacity.
+// Windows are by order date. Sketches are rebuilt from orders at startup and then follow
+// status transitions after they commit; transitions that commit while a rebuild reads orders
+// are replayed onto the rebuilt sketches. One that commits just as the rebuild starts reading
+// can be both read and replayed, which overstates that customer by one.
+@Service
+public class TopCustomerService {
+    private static final Logger logger = LoggerFactory.getLogger(TopCustomerService.class);
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+    public enum Window {
+        ALL, LAST_24_HOURS, LAST_30_DAYS;
+
+        public static Window parse(String value) {
+            if (value == null) {
+                return ALL;
+            }
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "all" -> ALL;
+                case "24h" -> LAST_24_HOURS;
+                case "30d" -> LAST_30_DAYS;
+                default -> throw new IllegalArgumentException("Unknown window: " + value);
+            };
+        }
+    }
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.top-customers.capacity:1000}")
+    private int capacity = 1000;
+
+    // Guarded by this
+    private SpaceSavingSketch allTime;
+    private WindowedTopK lastDay;
+    private WindowedTopK lastMonth;
+    private boolean rebuilding;
+    private final List<Change> changedDuringRebuild = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        reset();
+        meterRegistry.gauge("top.customers.max.error", this, service -> service.maxError());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        synchronized (this) {
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        }
+        try {
+            swapInRebuiltSketches();
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            }
+        }
+    }
+
+    private void swapInRebuiltSketches() {
+        long now = System.currentTimeMillis();
+        SpaceSavingSketch rebuiltAllTime = new SpaceSavingSketch(capacity);
+        for (Object[] row : orderRepository.countApprovedOrdersByUser()) {
+            rebuiltAllTime.add((Long) row[0], ((Number) row[1]).longValue());
+        }
+        WindowedTopK rebuiltDay = new WindowedTopK(HOUR_MILLIS, 24, capacity);
+        WindowedTopK rebuiltMonth = new WindowedTopK(DAY_MILLIS, 30, capacity);
+        LocalDateTime since = LocalDateTime.now().minusDays(31);
+        try (Stream<Object[]> rows = orderRepository.streamApprovedOrderDatesSince(since)) {
+            rows.forEach(row -> {
+                long orderMillis = toMillis((LocalDateTime) row[1]);
+                rebuiltDay.add((Long) row[0], 1, orderMillis, now);
+                rebuiltMonth.add((Long) row[0], 1, orderMillis, now);
+            });
+        }
+        synchronized (this) {
+            allTime = rebuiltAllTime;
+            lastDay = rebuiltDay;
+            lastMonth = rebuiltMonth;
+            for (Change change : changedDuringRebuild) {
+                update(change);
+            }
+        }
+        logger.info("Top customer sketches rebuilt from {} approved orders", rebuiltAllTime.getTotal());
+    }
+
+    public void recordStatusChange(Order order, Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        boolean wasApproved = oldStatus == Order.OrderStatus.APPROVED;
+        boolean isApproved = newStatus == Order.OrderStatus.APPROVED;
+        if (wasApproved == isApproved || order.getUserId() == null) {
+            return;
+        }
+        long userId = order.getUserId();
+        long orderMillis = toMillis(order.getOrderDate());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(userId, orderMillis, isApproved);
+                }
+            });
+        } else {
+            apply(userId, orderMillis, isApproved);
+        }
+    }
+
+    // Rows are [customerName, approvedOrders, userId, maxOvercount], most orders first
+    public List<Object[]> topCustomers(Window window, int limit) {
+        List<SpaceSavingSketch.Estimate> top;
+        synchronized (this) {
+            top = sketchFor(window, System.currentTimeMillis()).top(limit);
+        }
+        List<Long> userIds = new ArrayList<>(top.size());
+        for (SpaceSavingSketch.Estimate estimate : top) {
+            userIds.add(estimate.key());
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+        List<Object[]> rows = new ArrayList<>(top.size());
+        for (SpaceSavingSketch.Estimate estimate : top) {
+            User user = users.get(estimate.key());
+            String name = user == null ? null : user.getFirstName() + " " + user.getLastName();
+            rows.add(new Object[]{name, estimate.count(), estimate.key(), estimate.error()});
+        }
+        return rows;
+    }
+
+    public synchronized long maxError() {
+        return allTime.maxError();
+    }
+
+    synchronized void reset() {
+        allTime = new SpaceSavingSketch(capacity);
+        lastDay = new WindowedTopK(HOUR_MILLIS, 24, capacity);
+        lastMonth = new WindowedTopK(DAY_MILLIS, 30, capacity);
+    }
+
+    private synchronized void apply(long userId, long orderMillis, boolean approved) {
+        Change change = new Change(userId, orderMillis, approved);
+        if (rebuilding) {
+            changedDuringRebuild.add(change);
+        }
+        update(change);
+    }
+
+    // Caller holds this
+    private void update(Change change) {
+        long now = System.currentTimeMillis();
+        if (change.approved()) {
+            allTime.add(change.userId(), 1);
+            lastDay.add(change.userId(), 1, change.orderMillis(), now);
+            lastMonth.add(change.userId(), 1, change.orderMillis(), now);
+        } else {
+            allTime.remove(change.userId(), 1);
+            lastDay.remove(change.userId(), 1, change.orderMillis(), now);
+            lastMonth.remove(change.userId(), 1, change.orderMillis(), now);
+        }
+    }
+
+    private SpaceSavingSketch sketchFor(Window window, long now) {
+        return switch (window) {
+            case ALL -> allTime;
+            case LAST_24_HOURS -> lastDay.snapshot(now);
+            case LAST_30_DAYS -> lastMonth.snapshot(now);
+        };
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Change(long userId, long orderMillis, boolean approved) {
+    }
+}
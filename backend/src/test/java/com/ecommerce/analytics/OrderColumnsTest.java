@@ -0,0 +1,121 @@
+package com.ecommerce.analytics;
+
+import com.ecommerce.entity.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderColumnsTest {
+    private static final int APPROVED = Order.OrderStatus.APPROVED.ordinal();
+    private static final int PENDING = Order.OrderStatus.PENDING.ordinal();
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 31, 22, 0);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @Test
+    void aggregate_ShouldBucketByHourDayAndMonth() {
+        OrderColumns columns = new OrderColumns();
+        columns.appendOrder(1, BASE.plusMinutes(10), APPROVED, 0, 1000, 0);
+        columns.appendOrder(2, BASE.plusMinutes(70), APPROVED, 0, 2000, 0);
+        columns.appendOrder(3, BASE.plusMinutes(150), APPROVED, 0, 4000, 0);
+
+        List<OrderColumns.Cell> hours = columns.aggregate(OrderColumns.Granularity.HOUR, OrderColumns.GroupBy.NONE,
+                APPROVED, null, null, pool);
+        List<OrderColumns.Cell> months = columns.aggregate(OrderColumns.Granularity.MONTH, OrderColumns.GroupBy.NONE,
+                APPROVED, null, null, pool);
+
+        assertEquals(3, hours.size());
+        assertEquals(BASE, OrderColumns.Granularity.HOUR.start(hours.get(0).bucket()));
+        assertEquals(2, months.size());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0), OrderColumns.Granularity.MONTH.start(months.get(0).bucket()));
+        assertEquals(3000, months.get(0).revenueCents());
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), OrderColumns.Granularity.MONTH.start(months.get(1).bucket()));
+        assertEquals(1, months.get(1).orders());
+    }
+
+    @Test
+    void aggregate_ShouldSplitDiscountAcrossCategories_AndCountEachOrderOncePerCategory() {
+        OrderColumns columns = new OrderColumns();
+        columns.appendOrder(1, BASE, APPROVED, Order.DiscountType.TIME_10.bit(), 900, 100);
+        columns.appendItem("books", 300);
+        columns.appendItem("games", 400);
+        columns.appendItem("books", 300);
+
+        List<OrderColumns.Cell> cells = columns.aggregate(OrderColumns.Granularity.DAY, OrderColumns.GroupBy.CATEGORY,
+                APPROVED, null, null, pool);
+
+        assertEquals(2, cells.size());
+        OrderColumns.Cell books = cells.get(0);
+        OrderColumns.Cell games = cells.get(1);
+        assertEquals("books", columns.category(books.group()));
+        assertEquals(1, books.orders());
+        assertEquals(60, books.discountCents());
+        assertEquals(540, books.revenueCents());
+        assertEquals(40, games.discountCents());
+        assertEquals(360, games.revenueCents());
+    }
+
+    @Test
+    void aggregate_ShouldMatchSequentialSums_WhenForkedAcrossWorkers() {
+        SplittableRandom random = new SplittableRandom(11);
+        OrderColumns columns = new OrderColumns(64);
+        Map<String, long[]> expected = new HashMap<>();
+        LocalDateTime from = BASE.plusHours(5);
+        LocalDateTime to = BASE.plusHours(40);
+        for (int id = 1; id <= 5_000; id++) {
+            LocalDateTime createdAt = BASE.plusMinutes(id / 2);
+            int status = random.nextInt(4);
+            int flags = random.nextInt(Order.DiscountType.COMBINATIONS);
+            long total = random.nextLong(10_000);
+            long discount = random.nextLong(1_000);
+            columns.appendOrder(id, createdAt, status, flags, total, discount);
+            if (status == APPROVED && !createdAt.isBefore(from) && createdAt.isBefore(to)) {
+                long[] sum = expected.computeIfAbsent(createdAt.toLocalDate() + "/" + flags, k -> new long[3]);
+                sum[0]++;
+                sum[1] += total;
+                sum[2] += discount;
+            }
+        }
+
+        List<OrderColumns.Cell> cells = columns.aggregate(OrderColumns.Granularity.DAY, OrderColumns.GroupBy.DISCOUNT,
+                APPROVED, from, to, pool);
+
+        assertEquals(expected.size(), cells.size());
+        for (OrderColumns.Cell cell : cells) {
+            String key = OrderColumns.Granularity.DAY.start(cell.bucket()).toLocalDate() + "/" + cell.group();
+            assertArrayEquals(expected.get(key), new long[]{cell.orders(), cell.revenueCents(), cell.discountCents()}, key);
+        }
+    }
+
+    @Test
+    void appendAllAndUpdate_ShouldRemapCategoriesAndOverwriteLoadedOrders() {
+        OrderColumns columns = new OrderColumns();
+        columns.appendOrder(1, BASE, PENDING, 0, 500, 0);
+        columns.appendItem("books", 500);
+        OrderColumns batch = new OrderColumns();
+        batch.appendOrder(2, BASE.plusMinutes(1), APPROVED, 0, 700, 0);
+        batch.appendItem("games", 200);
+        batch.appendItem("books", 500);
+
+        columns.appendAll(batch);
+
+        assertTrue(columns.update(1, BASE, APPROVED, 0, 450, 50));
+        assertFalse(columns.update(3, BASE, APPROVED, 0, 1, 0));
+        assertEquals(2, columns.size());
+        assertEquals(3, columns.itemCount());
+        List<OrderColumns.Cell> cells = columns.aggregate(OrderColumns.Granularity.DAY, OrderColumns.GroupBy.CATEGORY,
+                APPROVED, null, null, pool);
+        assertEquals("books", columns.category(cells.get(0).group()));
+        assertEquals(2, cells.get(0).orders());
+        assertEquals(950, cells.get(0).revenueCents());
+        assertEquals("games", columns.category(cells.get(1).group()));
+        assertEquals(200, cells.get(1).revenueCents());
+    }
+}
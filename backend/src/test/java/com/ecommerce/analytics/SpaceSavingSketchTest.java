@@ -0,0 +1,89 @@
+package com.ecommerce.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void add_ShouldBeExact_WhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.add(1, 3);
+        sketch.add(2, 5);
+        sketch.add(1, 1);
+
+        assertEquals(0, sketch.maxError());
+        assertEquals(List.of(new SpaceSavingSketch.Estimate(2, 5, 0), new SpaceSavingSketch.Estimate(1, 4, 0)),
+                sketch.top(5));
+    }
+
+    @Test
+    void estimates_ShouldBracketTrueCounts_UnderSkewedStreamWithRetractions() {
+        SplittableRandom random = new SplittableRandom(42);
+        SpaceSavingSketch sketch = new SpaceSavingSketch(100);
+        Map<Long, Long> exact = new HashMap<>();
+        long added = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long key = (long) (Math.pow(random.nextDouble(), 4) * 2_000);
+            sketch.add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+            added++;
+            if (i % 20 == 0 && exact.get(key) > 0) {
+                sketch.remove(key, 1);
+                exact.merge(key, -1L, Long::sum);
+            }
+        }
+
+        assertTrue(sketch.maxError() <= added / 100);
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            SpaceSavingSketch.Estimate estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate.count() >= entry.getValue(), "overestimate for " + entry);
+            assertTrue(estimate.guaranteed() <= entry.getValue(), "lower bound for " + entry);
+        }
+        assertEquals(0L, sketch.top(1).get(0).key());
+    }
+
+    @Test
+    void merge_ShouldKeepBoundsAcrossSketches() {
+        SplittableRandom random = new SplittableRandom(7);
+        SpaceSavingSketch first = new SpaceSavingSketch(50);
+        SpaceSavingSketch second = new SpaceSavingSketch(50);
+        Map<Long, Long> exact = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            long key = (long) (Math.pow(random.nextDouble(), 3) * 1_000);
+            (i % 2 == 0 ? first : second).add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        SpaceSavingSketch merged = SpaceSavingSketch.merge(List.of(first, second), 50);
+
+        assertEquals(50_000, merged.getTotal());
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            SpaceSavingSketch.Estimate estimate = merged.estimate(entry.getKey());
+            assertTrue(estimate.count() >= entry.getValue(), "overestimate for " + entry);
+            assertTrue(estimate.guaranteed() <= entry.getValue(), "lower bound for " + entry);
+        }
+    }
+
+    @Test
+    void windowedTopK_ShouldDropBucketsThatLeaveTheWindow() {
+        WindowedTopK window = new WindowedTopK(HOUR, 24, 10);
+        long now = 1_000 * HOUR;
+        window.add(1, 5, now - 1_000, now);
+        window.add(2, 3, now - 23 * HOUR, now);
+        window.add(3, 9, now - 25 * HOUR, now);
+        window.remove(1, 1, now - 1_000, now);
+
+        assertEquals(List.of(1L, 2L), window.snapshot(now).top(5).stream().map(SpaceSavingSketch.Estimate::key).toList());
+        assertEquals(4, window.snapshot(now).estimate(1).count());
+        assertEquals(List.of(1L), window.snapshot(now + 2 * HOUR).top(5).stream()
+                .map(SpaceSavingSketch.Estimate::key).toList());
+    }
+}
@@ -0,0 +1,159 @@
+package com.ecommerce.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportCacheTest {
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private ReportCache reportCache;
+
+    @BeforeEach
+    void setUp() {
+        reportCache = new ReportCache();
+        ReflectionTestUtils.setField(reportCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reportCache, "freshSeconds", 10L);
+        ReflectionTestUtils.setField(reportCache, "staleSeconds", 60L);
+        ReflectionTestUtils.setField(reportCache, "maxEntries", 100);
+        ReflectionTestUtils.setField(reportCache, "refreshThreads", 1);
+        ReflectionTestUtils.setField(reportCache, "clock", (LongSupplier) now::get);
+        reportCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportCache.shutdown();
+    }
+
+    @Test
+    void get_ShouldServeFreshResultWithoutRecomputing() {
+        AtomicInteger computations = new AtomicInteger();
+
+        assertEquals(1, (int) reportCache.get("revenue", "day", computations::incrementAndGet));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, (int) reportCache.get("revenue", "day", computations::incrementAndGet));
+        assertEquals(2, (int) reportCache.get("revenue", "month", computations::incrementAndGet));
+
+        assertEquals(2, computations.get());
+        assertEquals(1.0 / 3, reportCache.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void get_ShouldServeStaleResult_WhileOneBackgroundRefreshRuns() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        reportCache.get("revenue", "day", computations::incrementAndGet);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, (int) reportCache.get("revenue", "day", () -> {
+                await(release);
+                return computations.incrementAndGet();
+            }));
+        }
+        release.countDown();
+        waitFor(() -> computations.get() == 2);
+        waitFor(() -> (Integer) reportCache.get("revenue", "day", computations::incrementAndGet) == 2);
+
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    void get_ShouldCoalesceConcurrentMisses_OntoOneComputation() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(readers.submit(() -> reportCache.get("top-selling", "", () -> {
+                started.countDown();
+                await(release);
+                return computations.incrementAndGet();
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(readers.submit(() -> reportCache.get("top-selling", "", computations::incrementAndGet)));
+            }
+            release.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(1, (int) result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_ShouldKeepPreviousResult_WhenBackgroundRefreshFails() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<String> failing = () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("still loading");
+        };
+        reportCache.get("revenue", "day", () -> "first");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals("first", reportCache.get("revenue", "day", failing));
+        waitFor(() -> attempts.get() == 1);
+        // Readers do not retry a failed refresh until another fresh period has passed
+        assertEquals("first", reportCache.get("revenue", "day", failing));
+        Thread.sleep(50);
+        assertEquals(1, attempts.get());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals("first", reportCache.get("revenue", "day", failing));
+        waitFor(() -> attempts.get() == 2);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThrows(IllegalStateException.class, () -> reportCache.get("revenue", "day", failing));
+    }
+
+    @Test
+    void refresh_ShouldRecomputeOnlyTheNamedReport() throws Exception {
+        AtomicInteger revenue = new AtomicInteger();
+        AtomicInteger topSelling = new AtomicInteger();
+        reportCache.get("revenue", "day", revenue::incrementAndGet);
+        reportCache.get("revenue", "month", revenue::incrementAndGet);
+        reportCache.get("top-selling", "", topSelling::incrementAndGet);
+
+        assertEquals(2, reportCache.refresh("revenue"));
+        waitFor(() -> revenue.get() == 4);
+
+        assertEquals(1, topSelling.get());
+        assertEquals(0, reportCache.refresh("frequent-customers"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.exception.InsufficientStockException;
+import com.ecommerce.service.IdempotencyService;
+import com.ecommerce.service.OrderExportService;
+import com.ecommerce.service.OrderIntakeService;
+import com.ecommerce.service.OrderService;
+import com.ecommerce.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(OrderController.class)
+@ActiveProfiles("test")
+class OrderControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OrderService orderService;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private OrderIntakeService orderIntakeService;
+
+    @MockBean
+    private OrderExportService orderExportService;
+
+    @Test
+    void createOrder_ShouldAnswer409WithShortLines_WhenStockIsInsufficient() throws Exception {
+        when(orderIntakeService.createOrder(eq(1L), any())).thenThrow(new InsufficientStockException(List.of(
+                new InsufficientStockException.Shortage(5L, "iPhone 15", 3, 1))));
+
+        mockMvc.perform(post("/api/orders").param("userId", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"productId\":5,\"quantity\":3}]}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$[0].productId").value(5))
+                .andExpect(jsonPath("$[0].requested").value(3))
+                .andExpect(jsonPath("$[0].available").value(1));
+    }
+}
@@ -0,0 +1,71 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.service.CatalogService;
+import com.ecommerce.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ProductController.class)
+@ActiveProfiles("test")
+class ProductControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductService productService;
+
+    @MockBean
+    private CatalogService catalogService;
+
+    @Test
+    void getProductById_ShouldAnswer304_WhenVersionIsUnchanged() throws Exception {
+        Product product = new Product("iPhone 15", "Latest iPhone", BigDecimal.valueOf(999.99), "Electronics", 50);
+        product.setId(1L);
+        product.setVersion(3L);
+        when(productService.getProductById(1L)).thenReturn(product);
+
+        mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p1-v3\""));
+
+        mockMvc.perform(get("/api/products/1").header("If-None-Match", "\"p1-v3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        product.setVersion(4L);
+        mockMvc.perform(get("/api/products/1").header("If-None-Match", "\"p1-v3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p1-v4\""));
+    }
+
+    @Test
+    void getAllProducts_ShouldAnswer304WithoutLoadingThePage_WhenCatalogIsUnchanged() throws Exception {
+        when(productService.getListingVersion()).thenReturn("42-7");
+
+        mockMvc.perform(get("/api/products").header("If-None-Match", "\"c42-7\""))
+                .andExpect(status().isNotModified());
+        verify(productService, never()).getAllProducts(any());
+
+        when(productService.getListingVersion()).thenReturn("43-7");
+        when(productService.getAllProducts(any())).thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 10), 0));
+        mockMvc.perform(get("/api/products").header("If-None-Match", "\"c42-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"c43-7\""));
+    }
+}
@@ -0,0 +1,100 @@
+package com.ecommerce.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignIndexTest {
+
+    private static Campaign campaign(long id, String category, String segment, int priority,
+                                     boolean exclusive, int basisPoints, long start, long end) {
+        return new Campaign(id, "c" + id, category, segment, priority, exclusive, basisPoints, start, end);
+    }
+
+    @Test
+    void activeAt_ShouldUseOpenStartAndEnd() {
+        CampaignIndex index = CampaignIndex.build(1, List.of(campaign(1, null, null, 0, false, 1000, 100, 200)));
+
+        assertTrue(index.activeAt(100).isEmpty());
+        assertEquals(1, index.activeAt(101).size());
+        assertEquals(1, index.activeAt(199).size());
+        assertTrue(index.activeAt(200).isEmpty());
+    }
+
+    @Test
+    void applicable_ShouldStackNonExclusiveCampaignsForCategoryAndSegment() {
+        CampaignIndex index = CampaignIndex.build(1, List.of(
+            campaign(1, "Electronics", null, 0, false, 1000, 0, 1000),
+            campaign(2, null, Campaign.SEGMENT_FREQUENT, 5, false, 500, 0, 1000),
+            campaign(3, "Books", null, 9, false, 2000, 0, 1000)));
+
+        assertEquals(1500, index.basisPoints(500, "electronics", true));
+        assertEquals(1000, index.basisPoints(500, "Electronics", false));
+        assertEquals(List.of(2L, 1L), index.applicable(500, "Electronics", true).stream().map(Campaign::id).toList());
+    }
+
+    @Test
+    void applicable_ShouldApplyExclusiveCampaignAlone_OnlyWhenItWins() {
+        CampaignIndex index = CampaignIndex.build(1, List.of(
+            campaign(1, "Electronics", null, 1, false, 1000, 0, 1000),
+            campaign(2, "Electronics", null, 9, true, 3000, 0, 500),
+            campaign(3, "Electronics", null, 0, true, 4000, 0, 1000)));
+
+        // Campaign 2 wins on priority and is exclusive
+        assertEquals(3000, index.basisPoints(100, "Electronics", false));
+        // After it ends, campaign 1 wins and the lower exclusive campaign 3 is skipped
+        assertEquals(1000, index.basisPoints(700, "Electronics", false));
+        assertEquals(List.of(1L), index.applicable(700, "Electronics", false).stream().map(Campaign::id).toList());
+    }
+
+    @Test
+    void withAndWithout_ShouldMatchFullRebuild() {
+        Random random = new Random(11);
+        List<Campaign> campaigns = new ArrayList<>();
+        CampaignIndex incremental = CampaignIndex.EMPTY;
+        for (long id = 1; id <= 200; id++) {
+            long start = random.nextInt(10_000);
+            Campaign campaign = campaign(id, random.nextBoolean() ? "A" : null, null,
+                random.nextInt(5), random.nextInt(10) == 0, random.nextInt(2000), start, start + random.nextInt(3000));
+            campaigns.add(campaign);
+            incremental = incremental.with(id, campaign);
+        }
+        // Edit some campaigns and remove others
+        for (int i = 0; i < 50; i++) {
+            int position = random.nextInt(campaigns.size());
+            Campaign old = campaigns.get(position);
+            if (i % 2 == 0) {
+                long start = random.nextInt(10_000);
+                Campaign edited = campaign(old.id(), old.category(), null, old.priority(), old.exclusive(),
+                    old.basisPoints(), start, start + random.nextInt(3000));
+                campaigns.set(position, edited);
+                incremental = incremental.with(1000 + i, edited);
+            } else {
+                campaigns.remove(position);
+                incremental = incremental.without(1000 + i, old.id());
+            }
+        }
+
+        CampaignIndex rebuilt = CampaignIndex.build(2000, campaigns);
+        assertEquals(rebuilt.size(), incremental.size());
+        for (long t = -1; t <= 13_000; t += 7) {
+            assertEquals(rebuilt.activeAt(t), incremental.activeAt(t), "at " + t);
+            assertEquals(rebuilt.basisPoints(t, "A", false), incremental.basisPoints(t, "A", false), "at " + t);
+        }
+    }
+
+    @Test
+    void with_ShouldLeaveOriginalIndexUnchanged() {
+        CampaignIndex original = CampaignIndex.build(1, List.of(campaign(1, null, null, 0, false, 1000, 0, 100)));
+
+        CampaignIndex updated = original.with(2, campaign(2, null, null, 0, false, 500, 50, 150));
+
+        assertEquals(1, original.activeAt(75).size());
+        assertEquals(2, updated.activeAt(75).size());
+        assertEquals(2, updated.getVersion());
+    }
+}
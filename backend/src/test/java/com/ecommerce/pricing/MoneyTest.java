@@ -0,0 +1,49 @@
+package com.ecommerce.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void of_ShouldRoundHalfUpToCents() {
+        assertEquals(Money.ofCents(1_000), Money.of(new BigDecimal("10")));
+        assertEquals(Money.ofCents(1_667), Money.of(new BigDecimal("16.665")));
+        assertEquals(Money.ofCents(-1_667), Money.of(new BigDecimal("-16.665")));
+        assertEquals(Money.ZERO, Money.of(null));
+    }
+
+    @Test
+    void toBigDecimal_ShouldAlwaysUseScaleTwo() {
+        assertEquals(new BigDecimal("1999.98"), Money.ofCents(199_998).toBigDecimal());
+        assertEquals(new BigDecimal("0.00"), Money.ZERO.toBigDecimal());
+    }
+
+    @Test
+    void arithmetic_ShouldBeExact() {
+        Money price = Money.of(new BigDecimal("999.99"));
+
+        assertEquals(Money.ofCents(199_998), price.times(2));
+        assertEquals(Money.ofCents(100_000), price.plus(Money.ofCents(1)));
+        assertEquals(Money.ofCents(99_998), price.minus(Money.ofCents(1)));
+    }
+
+    @Test
+    void percentage_ShouldRoundHalfUp() {
+        assertEquals(Money.ofCents(167), Money.ofCents(3_333).percentage(500)); // 1.6665
+        assertEquals(Money.ofCents(166), Money.ofCents(3_321).percentage(500)); // 1.6605
+        assertEquals(Money.ofCents(-167), Money.ofCents(-3_333).percentage(500));
+        assertEquals(Money.ofCents(55_000), Money.ofCents(100_000).percentage(5_500));
+    }
+
+    @Test
+    void arithmetic_ShouldThrow_WhenOverflowing() {
+        Money max = Money.ofCents(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true"
+})
+@ActiveProfiles("test")
+class OrderRepositoryTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void save_ShouldBatchItemInserts_WhenOrderHasManyItems() {
+        Order order = new Order(1L, BigDecimal.valueOf(300), LocalDateTime.now());
+        for (int i = 0; i < 30; i++) {
+            order.getItems().add(new OrderItem(order, (long) (i + 1), "Product " + i, 1, BigDecimal.TEN));
+        }
+
+        orderRepository.save(order);
+        entityManager.flush();
+
+        assertEquals(31, statistics.getEntityInsertCount());
+        // One batched INSERT per table plus at most two sequence calls per table on first use,
+        // instead of 31 single-row inserts with IDENTITY ids
+        assertTrue(statistics.getPrepareStatementCount() <= 6,
+            "Expected at most 6 statements but was " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void save_ShouldNotCallSequence_ForEveryOrder() {
+        for (int i = 0; i < 10; i++) {
+            Order order = new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+            order.getItems().add(new OrderItem(order, 1L, "Product", 1, BigDecimal.TEN));
+            orderRepository.save(order);
+        }
+        entityManager.flush();
+
+        assertEquals(20, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 6,
+            "Expected at most 6 statements but was " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findById_ShouldReadLegacyDiscountType_WhenFlagsAreMissing() {
+        insertLegacyOrder(900_001L, "FREQUENT_5,TIME_10");
+
+        Order order = orderRepository.findById(900_001L).orElseThrow();
+
+        assertEquals(Order.DiscountType.FREQUENT_5.bit() | Order.DiscountType.TIME_10.bit(), order.getDiscountFlags());
+        assertTrue(order.hasDiscount(Order.DiscountType.TIME_10));
+        assertFalse(order.hasDiscount(Order.DiscountType.RANDOM_50));
+        assertEquals("FREQUENT_5,TIME_10", order.getDiscountType());
+    }
+
+    @Test
+    void findById_ShouldSkipUnknownLegacyDiscountNames() {
+        insertLegacyOrder(900_004L, "FREQUENT_5,LOYALTY_15");
+
+        Order order = orderRepository.findById(900_004L).orElseThrow();
+
+        assertEquals(Order.DiscountType.FREQUENT_5.bit(), order.getDiscountFlags());
+    }
+
+    @Test
+    void findTimeDiscountCandidates_ShouldMatchOnFlagsAndLegacyStrings() {
+        Order frequent = new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        frequent.setDiscountFlags(Order.DiscountType.FREQUENT_5.bit());
+        Order alreadyTimed = new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        alreadyTimed.setDiscountFlags(Order.DiscountType.TIME_10.bit());
+        orderRepository.save(frequent);
+        orderRepository.save(alreadyTimed);
+        insertLegacyOrder(900_002L, "FREQUENT_5");
+        insertLegacyOrder(900_003L, "RANDOM_50");
+
+        List<Order> candidates = orderRepository.findTimeDiscountCandidates(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1),
+                Order.OrderStatus.PENDING, 0L, PageRequest.of(0, 10));
+
+        assertEquals(List.of(frequent.getId(), 900_002L), candidates.stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void findVisibleBefore_ShouldWalkEveryVisibleOrderOnce_WhenCreatedAtTies() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        insertOrderCreatedAt(900_010L, base, true);
+        insertOrderCreatedAt(900_011L, base.plusMinutes(1), true);
+        insertOrderCreatedAt(900_012L, base.plusMinutes(1), true);
+        insertOrderCreatedAt(900_013L, base.plusMinutes(1), false);
+        insertOrderCreatedAt(900_014L, base.plusMinutes(2), true);
+
+        List<Long> walked = new ArrayList<>();
+        Slice<Order> slice = orderRepository.findByIsVisibleTrueOrderByCreatedAtDescIdDesc(PageRequest.of(0, 2));
+        while (true) {
+            slice.getContent().forEach(order -> walked.add(order.getId()));
+            if (!slice.hasNext()) {
+                break;
+            }
+            Order last = slice.getContent().get(slice.getContent().size() - 1);
+            slice = orderRepository.findVisibleBefore(last.getCreatedAt(), last.getId(), PageRequest.of(0, 2));
+        }
+
+        assertEquals(List.of(900_014L, 900_012L, 900_011L, 900_010L), walked);
+        assertEquals(4, orderRepository.countByIsVisibleTrue());
+    }
+
+    private void insertOrderCreatedAt(Long id, LocalDateTime createdAt, boolean visible) {
+        entityManager.getEntityManager().createNativeQuery(
+                "INSERT INTO orders (id, user_id, total_amount, discount_applied, order_date, status, is_visible, created_at) " +
+                "VALUES (?, 1, 10, 0, ?, 'PENDING', ?, ?)")
+            .setParameter(1, id)
+            .setParameter(2, createdAt)
+            .setParameter(3, visible)
+            .setParameter(4, createdAt)
+            .executeUpdate();
+        entityManager.clear();
+    }
+
+    private void insertLegacyOrder(Long id, String discountType) {
+        entityManager.getEntityManager().createNativeQuery(
+                "INSERT INTO orders (id, user_id, total_amount, discount_applied, discount_type, order_date, status, is_visible) " +
+                "VALUES (?, 1, 10, 0, ?, ?, 'PENDING', true)")
+            .setParameter(1, id)
+            .setParameter(2, discountType)
+            .setParameter(3, LocalDateTime.now())
+            .executeUpdate();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecommerce.search;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findByIsActiveTrue()).thenReturn(List.of(
+                product(1L, "iPhone 15", "Latest phone", "Electronics", "999.99"),
+                product(2L, "Funda para iPhone", "Silicona", "Accesorios", "19.90"),
+                product(3L, "Cámara Réflex", "Compatible con iPhone", "Electronics", "450.00"),
+                product(4L, "Headphones", "Wireless", "Electronics", "120.00")));
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void search_ShouldRankNameMatchesAboveDescriptionMatches() {
+        ProductSearchIndex.SearchResult result = searchIndex.search("iphone", null, null, null, 0, 10);
+
+        assertEquals(3, result.total());
+        assertEquals(List.of(1L, 2L, 3L), result.productIds());
+    }
+
+    @Test
+    void search_ShouldMatchSubstringsAndIgnoreAccents() {
+        assertEquals(List.of(3L), searchIndex.search("camara", null, null, null, 0, 10).productIds());
+        assertEquals(List.of(4L), searchIndex.search("phones", null, null, null, 0, 10).productIds());
+        assertEquals(List.of(1L), searchIndex.search("iphone 15", null, null, null, 0, 10).productIds());
+    }
+
+    @Test
+    void search_ShouldMatchShortQueriesAnywhereInTheName() {
+        assertEquals(List.of(1L, 2L, 4L), searchIndex.search("ne", null, null, null, 0, 10).productIds());
+        assertEquals(List.of(3L), searchIndex.search("éf", null, null, null, 0, 10).productIds());
+    }
+
+    @Test
+    void search_ShouldReturnNothing_WhenQueryIsOnlyPunctuation() {
+        assertEquals(0, searchIndex.search("?!", null, null, null, 0, 10).total());
+        assertEquals(4, searchIndex.search(" ", null, null, null, 0, 10).total());
+    }
+
+    @Test
+    void search_ShouldApplyCategoryAndInclusivePriceBounds() {
+        assertEquals(List.of(3L, 4L), searchIndex.search(null, "Electronics",
+                new BigDecimal("120.00"), new BigDecimal("450.00"), 0, 10).productIds());
+        assertEquals(List.of(2L, 4L), searchIndex.search(null, null,
+                null, new BigDecimal("120"), 0, 10).productIds());
+        assertEquals(0, searchIndex.search("iphone", "Unknown", null, null, 0, 10).total());
+    }
+
+    @Test
+    void index_ShouldReplaceUpdatedProductsAndDropInactiveOnes() {
+        searchIndex.index(product(1L, "Pixel 9", "Latest phone", "Electronics", "899.00"));
+        Product deleted = product(2L, "Funda para iPhone", "Silicona", "Accesorios", "19.90");
+        deleted.setIsActive(false);
+        searchIndex.index(deleted);
+
+        assertEquals(List.of(3L), searchIndex.search("iphone", null, null, null, 0, 10).productIds());
+        assertEquals(List.of(1L), searchIndex.search("pixel", null, null, null, 0, 10).productIds());
+        assertEquals(List.of(1L, 3L, 4L), searchIndex.search(null, null,
+                BigDecimal.ONE, null, 0, 10).productIds());
+    }
+
+    private static Product product(Long id, String name, String description, String category, String price) {
+        Product product = new Product(name, description, new BigDecimal(price), category, 10);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,225 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.AuditLog;
+import com.ecommerce.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditServiceTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private AuditService auditService;
+
+    @TempDir
+    Path tempDir;
+
+    private Path spillFile;
+
+    @BeforeEach
+    void setUp() {
+        spillFile = tempDir.resolve("audit-spill.ndjson");
+        ReflectionTestUtils.setField(auditService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(auditService, "mode", "async");
+        ReflectionTestUtils.setField(auditService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(auditService, "batchSize", 100);
+        ReflectionTestUtils.setField(auditService, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(auditService, "overflow", "block");
+        ReflectionTestUtils.setField(auditService, "spillFile", spillFile.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        auditService.drain();
+    }
+
+    @Test
+    void logAction_ShouldInsertDirectly_WhenSync() {
+        ReflectionTestUtils.setField(auditService, "mode", "sync");
+        auditService.start();
+
+        auditService.logAction("Product", 1L, "UPDATE", null, "old", "new");
+
+        verify(auditLogRepository).save(any(AuditLog.class));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flusher_ShouldWriteBatch_AsSoonAsItIsFull() {
+        ReflectionTestUtils.setField(auditService, "batchSize", 3);
+        ReflectionTestUtils.setField(auditService, "flushIntervalMs", TimeUnit.MINUTES.toMillis(1));
+        auditService.start();
+
+        for (long id = 1; id <= 3; id++) {
+            auditService.logAction("Product", id, "UPDATE", null, null, null);
+        }
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, timeout(5000)).batchUpdate(anyString(), batch.capture());
+        assertEquals(3, batch.getValue().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flusher_ShouldWritePartialBatch_WhenFlushIntervalPasses() {
+        auditService.start();
+
+        auditService.logAction("Product", 1L, "UPDATE", null, null, null);
+        auditService.logAction("Product", 2L, "UPDATE", null, null, null);
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, timeout(5000)).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+    }
+
+    @Test
+    void drain_ShouldWriteQueuedEventsBeforeReturning() throws InterruptedException {
+        auditService.start();
+        for (long id = 1; id <= 5; id++) {
+            auditService.logAction("Product", id, "UPDATE", null, null, null);
+        }
+
+        auditService.drain();
+
+        assertEquals(5, writtenRows());
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    void overflowDrop_ShouldDiscardEvents_WhenQueueIsFull() throws InterruptedException {
+        ReflectionTestUtils.setField(auditService, "overflow", "drop");
+        CountDownLatch release = fillQueue();
+
+        auditService.logAction("Product", 3L, "UPDATE", null, null, null);
+        release.countDown();
+        auditService.drain();
+
+        assertEquals(2, writtenRows());
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    void overflowSpill_ShouldAppendEventsToSpillFile_WhenQueueIsFull() throws Exception {
+        ReflectionTestUtils.setField(auditService, "overflow", "spill");
+        CountDownLatch release = fillQueue();
+
+        auditService.logAction("Product", 3L, "UPDATE", null, null, null);
+        release.countDown();
+        auditService.drain();
+
+        assertEquals(2, writtenRows());
+        List<String> spilled = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+        assertEquals(1, spilled.size());
+        assertEquals(3L, objectMapper.readValue(spilled.get(0), AuditLog.class).getEntityId());
+    }
+
+    @Test
+    void overflowBlock_ShouldWaitForRoom_WhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = fillQueue();
+
+        Thread producer = new Thread(() -> auditService.logAction("Product", 3L, "UPDATE", null, null, null));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        release.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        auditService.drain();
+
+        assertEquals(3, writtenRows());
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replay_ShouldResumeAfterLastCommittedBatch_WhenReplayFailedPartWay() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            lines.add(objectMapper.writeValueAsString(new AuditLog("Product", id, "UPDATE", null, null, null)));
+        }
+        Files.write(spillFile, lines, StandardCharsets.UTF_8);
+        ReflectionTestUtils.setField(auditService, "batchSize", 2);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenReturn(new int[]{1, 1})
+            .thenThrow(new DataAccessResourceFailureException("database unavailable"))
+            .thenReturn(new int[]{1, 1}, new int[]{1});
+
+        ReflectionTestUtils.invokeMethod(auditService, "replaySpillFile");
+        assertTrue(Files.exists(spillFile));
+        ReflectionTestUtils.invokeMethod(auditService, "replaySpillFile");
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(4)).batchUpdate(anyString(), batches.capture());
+        List<Object> entityIds = new ArrayList<>();
+        for (List<Object[]> batch : List.of(batches.getAllValues().get(0), batches.getAllValues().get(2),
+                batches.getAllValues().get(3))) {
+            batch.forEach(row -> entityIds.add(row[1]));
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), entityIds);
+        assertFalse(Files.exists(spillFile));
+    }
+
+    // Starts the flusher with room for one queued event and parks it inside its first write,
+    // then queues a second event so the next one overflows
+    private CountDownLatch fillQueue() throws InterruptedException {
+        ReflectionTestUtils.setField(auditService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(auditService, "batchSize", 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new int[]{1};
+        });
+        auditService.start();
+
+        auditService.logAction("Product", 1L, "UPDATE", null, null, null);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        auditService.logAction("Product", 2L, "UPDATE", null, null, null);
+        return release;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int writtenRows() {
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeast(0)).batchUpdate(anyString(), batches.capture());
+        return batches.getAllValues().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.DiscountConfig;
+import com.ecommerce.repository.DiscountConfigRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CampaignServiceTest {
+
+    @Mock
+    private DiscountConfigRepository discountConfigRepository;
+
+    @InjectMocks
+    private CampaignService campaignService;
+
+    private DiscountConfig campaign;
+
+    @BeforeEach
+    void setUp() {
+        campaign = new DiscountConfig(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+        campaign.setName("Electronics week");
+        campaign.setCategory("Electronics");
+        campaign.setTimeDiscountPercentage(BigDecimal.valueOf(10));
+        campaign.setIsActive(true);
+    }
+
+    @Test
+    void updateCampaign_ShouldReject_WhenRowIsTheGlobalConfig() {
+        DiscountConfig global = new DiscountConfig(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+        global.setId(1L);
+        when(discountConfigRepository.findById(1L)).thenReturn(Optional.of(global));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> campaignService.updateCampaign(1L, campaign));
+        assertEquals("Campaign not found with id: 1", exception.getMessage());
+        verify(discountConfigRepository, never()).save(any());
+    }
+
+    @Test
+    void updateCampaign_ShouldReplaceCampaignAndIndexIt() {
+        DiscountConfig stored = new DiscountConfig(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+        stored.setId(7L);
+        stored.setCategory("Home");
+        when(discountConfigRepository.findById(7L)).thenReturn(Optional.of(stored));
+        when(discountConfigRepository.save(campaign)).thenReturn(campaign);
+
+        DiscountConfig saved = campaignService.updateCampaign(7L, campaign);
+
+        assertEquals(7L, saved.getId());
+        assertEquals(1, campaignService.getIndex().size());
+    }
+}
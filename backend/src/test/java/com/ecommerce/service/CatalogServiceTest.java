@@ -0,0 +1,163 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CatalogImportReport;
+import com.ecommerce.dto.CatalogRow;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @InjectMocks
+    private CatalogService catalogService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(catalogService, "chunkSize", 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importCatalog_ShouldUpsertValidCsvRowsInChunksAndReportRejectedOnes() throws Exception {
+        when(productService.upsertCatalogChunk(anyList(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> invocation.<List<CatalogRow>>getArgument(0).size());
+        String csv = "sku,name,price,category,stock,description\n" +
+                "A1,\"Mug, large\",9.50,Home,3,\"Says \"\"hi\"\"\"\n" +
+                "A2,,1,Home,1,\n" +
+                "A3,Plate,2.25,Home,5,\n" +
+                "A4,Bowl,abc,Home,1,\n" +
+                "A5,Fork,1,Home,1,\n";
+
+        CatalogImportReport report = catalogService.importCatalog(stream(csv), "csv", 0);
+
+        ArgumentCaptor<List<CatalogRow>> chunk = ArgumentCaptor.forClass(List.class);
+        verify(productService).upsertCatalogChunk(chunk.capture(), eq(2L), eq(4L));
+        verify(productService).upsertCatalogChunk(anyList(), eq(6L), eq(6L));
+        CatalogRow mug = chunk.getValue().get(0);
+        assertEquals("Mug, large", mug.getName());
+        assertEquals("Says \"hi\"", mug.getDescription());
+        assertEquals(new BigDecimal("9.50"), mug.getPrice());
+
+        assertTrue(report.isCompleted());
+        assertEquals(5, report.getLinesRead());
+        assertEquals(3, report.getRowsUpserted());
+        assertEquals(2, report.getRowsRejected());
+        assertEquals(List.of(3L, 5L), report.getErrors().stream().map(CatalogImportReport.RowError::getLine).toList());
+        assertEquals("name must not be blank", report.getErrors().get(0).getMessage());
+        assertEquals(6, report.getLastCommittedLine());
+    }
+
+    @Test
+    void importCatalog_ShouldSkipLinesUpToResumePoint() throws Exception {
+        when(productService.upsertCatalogChunk(anyList(), anyLong(), anyLong())).thenReturn(1);
+        String ndjson = row("B1") + "\n" + row("B2") + "\n" + row("B3") + "\n";
+
+        CatalogImportReport report = catalogService.importCatalog(stream(ndjson), "ndjson", 2);
+
+        ArgumentCaptor<List<CatalogRow>> chunk = ArgumentCaptor.forClass(List.class);
+        verify(productService).upsertCatalogChunk(chunk.capture(), eq(3L), eq(3L));
+        assertEquals("B3", chunk.getValue().get(0).getSku());
+        assertEquals(1, report.getLinesRead());
+    }
+
+    @Test
+    void importCatalog_ShouldStopAtLastCommittedLine_WhenChunkFails() throws Exception {
+        when(productService.upsertCatalogChunk(anyList(), eq(1L), eq(2L))).thenReturn(2);
+        when(productService.upsertCatalogChunk(anyList(), eq(3L), eq(4L)))
+                .thenThrow(new RuntimeException("connection reset"));
+        String ndjson = row("C1") + "\n" + row("C2") + "\n" + row("C3") + "\n" + row("C4") + "\n" + row("C5") + "\n";
+
+        CatalogImportReport report = catalogService.importCatalog(stream(ndjson), "ndjson", 0);
+
+        assertFalse(report.isCompleted());
+        assertEquals(2, report.getLastCommittedLine());
+        assertEquals(2, report.getRowsUpserted());
+        assertTrue(report.getFailure().contains("connection reset"));
+        verify(productService, times(2)).upsertCatalogChunk(anyList(), anyLong(), anyLong());
+    }
+
+    @Test
+    void exportCatalog_ShouldWriteCsvThatImportsBack() throws Exception {
+        Product product = new Product("Mug, large", "Ceramic", new BigDecimal("9.50"), "Home", 3);
+        product.setSku("A1");
+        when(productRepository.streamByIsActiveTrue()).thenReturn(Stream.of(product));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        catalogService.exportCatalog(out, "csv");
+
+        assertEquals("sku,name,description,price,category,stock\nA1,\"Mug, large\",Ceramic,9.50,Home,3\n",
+                out.toString(StandardCharsets.UTF_8));
+        verify(entityManager).detach(product);
+    }
+
+    @Test
+    void exportCatalog_ShouldSkipProductsWithoutSku() throws Exception {
+        Product withSku = new Product("Mug", "Ceramic", new BigDecimal("9.50"), "Home", 3);
+        withSku.setSku("A1");
+        Product withoutSku = new Product("Plate", "Ceramic", new BigDecimal("4.00"), "Home", 5);
+        when(productRepository.streamByIsActiveTrue()).thenReturn(Stream.of(withoutSku, withSku));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        catalogService.exportCatalog(out, "csv");
+
+        assertEquals("sku,name,description,price,category,stock\nA1,Mug,Ceramic,9.50,Home,3\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importCatalog_ShouldRejectUnknownFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> catalogService.importCatalog(stream(""), "xml", 0));
+        verify(productService, never()).upsertCatalogChunk(any(), anyLong(), anyLong());
+    }
+
+    private static String row(String sku) {
+        return "{\"sku\":\"" + sku + "\",\"name\":\"Name\",\"price\":1,\"category\":\"Home\",\"stock\":1}";
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
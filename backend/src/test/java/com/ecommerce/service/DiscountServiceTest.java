@@ -2,6 +2,7 @@ package com.ecommerce.service;
 
 import com.ecommerce.entity.DiscountConfig;
 import com.ecommerce.entity.User;
+import com.ecommerce.pricing.Money;
 import com.ecommerce.repository.DiscountConfigRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -48,72 +49,92 @@ class DiscountServiceTest {
 
     @Test
     void calculateDiscount_ShouldApplyFrequentCustomerDiscount_WhenFrequentCustomer() {
-        when(discountConfigRepository.findActiveDiscountConfig()).thenReturn(Optional.empty());
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.empty());
 
-        BigDecimal result = discountService.calculateDiscount(
-            BigDecimal.valueOf(1000), false, frequentCustomer);
+        Money result = discountService.calculateDiscount(
+            Money.ofCents(100_000), false, frequentCustomer);
 
-        assertEquals(new BigDecimal("50.00"), result); // 5% of 1000
+        assertEquals(Money.ofCents(5_000), result); // 5% of 1000
     }
 
     @Test
     void calculateDiscount_ShouldNotApplyFrequentDiscount_WhenRegularCustomer() {
-        when(discountConfigRepository.findActiveDiscountConfig()).thenReturn(Optional.empty());
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.empty());
 
-        BigDecimal result = discountService.calculateDiscount(
-            BigDecimal.valueOf(1000), false, regularCustomer);
+        Money result = discountService.calculateDiscount(
+            Money.ofCents(100_000), false, regularCustomer);
 
-        assertEquals(BigDecimal.ZERO, result);
+        assertEquals(Money.ZERO, result);
     }
 
     @Test
     void calculateDiscount_ShouldApplyTimeDiscount_WhenActiveConfig() {
-        when(discountConfigRepository.findActiveDiscountConfig()).thenReturn(Optional.of(activeConfig));
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.of(activeConfig));
 
-        BigDecimal result = discountService.calculateDiscount(
-            BigDecimal.valueOf(1000), false, regularCustomer);
+        Money result = discountService.calculateDiscount(
+            Money.ofCents(100_000), false, regularCustomer);
 
-        assertEquals(new BigDecimal("100.0"), result); // 10% of 1000
+        assertEquals(Money.ofCents(10_000), result); // 10% of 1000
     }
 
     @Test
     void calculateDiscount_ShouldApplyRandomDiscount_WhenRandomOrder() {
-        when(discountConfigRepository.findActiveDiscountConfig()).thenReturn(Optional.of(activeConfig));
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.of(activeConfig));
 
-        BigDecimal result = discountService.calculateDiscount(
-            BigDecimal.valueOf(1000), true, regularCustomer);
+        Money result = discountService.calculateDiscount(
+            Money.ofCents(100_000), true, regularCustomer);
 
-        assertEquals(new BigDecimal("500.0"), result); // 50% of 1000
+        assertEquals(Money.ofCents(50_000), result); // 50% of 1000
     }
 
     @Test
     void calculateDiscount_ShouldCombineDiscounts_WhenFrequentCustomerAndRandomOrder() {
-        when(discountConfigRepository.findActiveDiscountConfig()).thenReturn(Optional.of(activeConfig));
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.of(activeConfig));
 
-        BigDecimal result = discountService.calculateDiscount(
-            BigDecimal.valueOf(1000), true, frequentCustomer);
+        Money result = discountService.calculateDiscount(
+            Money.ofCents(100_000), true, frequentCustomer);
 
-        assertEquals(new BigDecimal("550.00"), result); // 55% of 1000 (5% + 50%)
+        assertEquals(Money.ofCents(55_000), result); // 55% of 1000 (5% + 50%)
     }
 
     @Test
     void calculateDiscount_ShouldCombineDiscounts_WhenFrequentCustomerAndTimeDiscount() {
-        when(discountConfigRepository.findActiveDiscountConfig()).thenReturn(Optional.of(activeConfig));
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.of(activeConfig));
 
-        BigDecimal result = discountService.calculateDiscount(
-            BigDecimal.valueOf(1000), false, frequentCustomer);
+        Money result = discountService.calculateDiscount(
+            Money.ofCents(100_000), false, frequentCustomer);
 
-        assertEquals(new BigDecimal("150.00"), result); // 15% of 1000 (5% + 10%)
+        assertEquals(Money.ofCents(15_000), result); // 15% of 1000 (5% + 10%)
     }
 
     @Test
     void calculateDiscount_ShouldNotApplyTimeOrRandom_WhenConfigInactive() {
         activeConfig.setIsActive(false);
-        when(discountConfigRepository.findActiveDiscountConfig()).thenReturn(Optional.of(activeConfig));
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.of(activeConfig));
 
-        BigDecimal result = discountService.calculateDiscount(
-            BigDecimal.valueOf(1000), true, frequentCustomer);
+        Money result = discountService.calculateDiscount(
+            Money.ofCents(100_000), true, frequentCustomer);
 
-        assertEquals(new BigDecimal("50.00"), result); // Only 5% frequent customer discount
+        assertEquals(Money.ofCents(5_000), result); // Only 5% frequent customer discount
     }
-}
\ No newline at end of file
+
+    @Test
+    void calculateDiscount_ShouldReadConfigOnce_WhenCalledRepeatedly() {
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.of(activeConfig));
+
+        for (int i = 0; i < 10; i++) {
+            discountService.calculateDiscount(Money.ofCents(100_000), false, regularCustomer);
+        }
+
+        verify(discountConfigRepository, times(1)).findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc();
+    }
+
+    @Test
+    void calculateDiscount_ShouldRoundToCents_WhenRateDoesNotDivideEvenly() {
+        when(discountConfigRepository.findFirstByIsActiveTrueAndCategoryIsNullAndCustomerSegmentIsNullOrderByIdDesc()).thenReturn(Optional.empty());
+
+        Money result = discountService.calculateDiscount(Money.ofCents(3_333), false, frequentCustomer);
+
+        assertEquals(Money.ofCents(167), result); // 5% of 33.33 = 1.6665
+    }
+}
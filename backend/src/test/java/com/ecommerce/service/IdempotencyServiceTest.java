@@ -0,0 +1,177 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderRequest;
+import com.ecommerce.entity.IdempotencyRecord;
+import com.ecommerce.entity.Order;
+import com.ecommerce.exception.IdempotencyConflictException;
+import com.ecommerce.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private OrderRequest request;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 100);
+        idempotencyService.init();
+
+        request = new OrderRequest();
+        request.setItems(List.of(new OrderRequest.OrderItemRequest(1L, 2)));
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResult_WhenKeyIsRepeated() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<Order>>getArgument(0).doInTransaction(null));
+        AtomicInteger executions = new AtomicInteger();
+        Order created = new Order(1L, BigDecimal.valueOf(100), LocalDateTime.now());
+        created.setId(42L);
+
+        Order first = idempotencyService.execute("abc", 1L, request, () -> {
+            executions.incrementAndGet();
+            return created;
+        });
+        Order second = idempotencyService.execute("abc", 1L, request, () -> {
+            executions.incrementAndGet();
+            return created;
+        });
+
+        assertEquals(1, executions.get());
+        assertEquals(42L, first.getId());
+        assertEquals(42L, second.getId());
+        verify(idempotencyRecordRepository, times(1)).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void execute_ShouldRejectKey_WhenRequestDiffers() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<Order>>getArgument(0).doInTransaction(null));
+        idempotencyService.execute("abc", 1L, request, () -> new Order(1L, BigDecimal.TEN, LocalDateTime.now()));
+
+        OrderRequest other = new OrderRequest();
+        other.setItems(List.of(new OrderRequest.OrderItemRequest(1L, 3)));
+
+        assertThrows(IdempotencyConflictException.class,
+            () -> idempotencyService.execute("abc", 1L, other, () -> new Order()));
+    }
+
+    @Test
+    void execute_ShouldNotReplay_WhenTransactionDidNotCommit() {
+        // The callback runs, but the transaction never reaches afterCommit
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                return invocation.<TransactionCallback<Order>>getArgument(0).doInTransaction(null);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        AtomicInteger executions = new AtomicInteger();
+
+        idempotencyService.execute("abc", 1L, request, () -> {
+            executions.incrementAndGet();
+            return new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        });
+        idempotencyService.execute("abc", 1L, request, () -> {
+            executions.incrementAndGet();
+            return new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        });
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void execute_ShouldReplayOtherInstancesResult_WhenKeyInsertCollides() throws Exception {
+        Order stored = new Order(1L, BigDecimal.valueOf(100), LocalDateTime.now());
+        stored.setId(7L);
+        String requestHash = ReflectionTestUtils.invokeMethod(idempotencyService, "fingerprint", 1L, request);
+        IdempotencyRecord winner = new IdempotencyRecord("1:abc", 1L, requestHash,
+            objectMapper.writeValueAsString(stored), LocalDateTime.now().plusMinutes(60));
+        // Not there for either lookup, committed by the time the insert collides
+        when(idempotencyRecordRepository.findById("1:abc"))
+            .thenReturn(Optional.empty(), Optional.empty(), Optional.of(winner));
+        when(transactionTemplate.execute(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        Order replayed = idempotencyService.execute("abc", 1L, request, () -> new Order());
+
+        assertEquals(7L, replayed.getId());
+    }
+
+    @Test
+    void execute_ShouldDeleteExpiredRowAndRunAgain_WhenKeyHasExpired() throws Exception {
+        String requestHash = ReflectionTestUtils.invokeMethod(idempotencyService, "fingerprint", 1L, request);
+        IdempotencyRecord expired = new IdempotencyRecord("1:abc", 1L, requestHash,
+            objectMapper.writeValueAsString(new Order()), LocalDateTime.now().minusMinutes(1));
+        when(idempotencyRecordRepository.findById("1:abc")).thenReturn(Optional.of(expired), Optional.empty());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<Order>>getArgument(0).doInTransaction(null));
+        Order created = new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        created.setId(9L);
+
+        Order result = idempotencyService.execute("abc", 1L, request, () -> created);
+
+        assertEquals(9L, result.getId());
+        verify(idempotencyRecordRepository).deleteExpired(eq("1:abc"), any(LocalDateTime.class));
+        verify(idempotencyRecordRepository).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void execute_ShouldNotReplayExpiredWinner_WhenKeyInsertCollides() throws Exception {
+        String requestHash = ReflectionTestUtils.invokeMethod(idempotencyService, "fingerprint", 1L, request);
+        IdempotencyRecord expired = new IdempotencyRecord("1:abc", 1L, requestHash,
+            objectMapper.writeValueAsString(new Order()), LocalDateTime.now().minusMinutes(1));
+        when(idempotencyRecordRepository.findById("1:abc"))
+            .thenReturn(Optional.empty(), Optional.empty(), Optional.of(expired));
+        when(transactionTemplate.execute(any()))
+            .thenThrow(new DataIntegrityViolationException("duplicate key"))
+            .thenAnswer(invocation -> invocation.<TransactionCallback<Order>>getArgument(0).doInTransaction(null));
+        Order created = new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        created.setId(9L);
+
+        Order result = idempotencyService.execute("abc", 1L, request, () -> created);
+
+        assertEquals(9L, result.getId());
+        verify(idempotencyRecordRepository).deleteExpired(eq("1:abc"), any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,221 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import com.ecommerce.entity.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryLedgerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private InventoryLedger inventoryLedger;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(inventoryLedger, "mode", "ledger");
+    }
+
+    @Test
+    void reserve_ShouldDecrementCounter_WhenSufficientStock() throws SQLException {
+        stockRow(1L, 10, 0);
+
+        Map<Long, Integer> shortages = inventoryLedger.reserve(Map.of(1L, 4));
+
+        assertTrue(shortages.isEmpty());
+        assertEquals(6, inventoryLedger.available(1L));
+    }
+
+    @Test
+    void reserve_ShouldReleaseEveryLine_WhenAnyLineIsShort() throws SQLException {
+        stockRow(1L, 10, 0);
+        stockRow(2L, 1, 0);
+
+        Map<Long, Integer> shortages = inventoryLedger.reserve(new TreeMap<>(Map.of(1L, 4, 2L, 3)));
+
+        assertEquals(Map.of(2L, 1), shortages);
+        assertEquals(10, inventoryLedger.available(1L));
+        assertEquals(1, inventoryLedger.available(2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteNetDeltaPerProductInOneBatch() throws SQLException {
+        stockRow(1L, 10, 0);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        inventoryLedger.reserve(Map.of(1L, 2));
+        inventoryLedger.reserve(Map.of(1L, 3));
+
+        inventoryLedger.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertEquals(5, batch.getValue().get(0)[0]);
+
+        inventoryLedger.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldExpectTheVersionItLastWrote() throws SQLException {
+        stockRow(1L, 10, 3);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        inventoryLedger.reserve(Map.of(1L, 2));
+        inventoryLedger.flush();
+        inventoryLedger.reserve(Map.of(1L, 3));
+        inventoryLedger.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batch.capture());
+        assertEquals(3L, batch.getAllValues().get(0).get(0)[3]);
+        assertEquals(4L, batch.getAllValues().get(1).get(0)[3]);
+    }
+
+    @Test
+    void flush_ShouldDiscardDelta_WhenResetCommitsWhileItIsWritten() throws SQLException {
+        stockRow(1L, 10, 3);
+        inventoryLedger.reserve(Map.of(1L, 4));
+        // The admin edit commits (version 4) between draining the delta and writing it
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            inventoryLedger.reset(product(1L, 50, 4L));
+            return new int[]{0};
+        });
+
+        inventoryLedger.flush();
+        inventoryLedger.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertEquals(50, inventoryLedger.available(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldRetryDelta_WhenRowChangedButNoResetHappened() throws SQLException {
+        stockRow(1L, 10, 3);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0}, new int[]{1});
+        inventoryLedger.reserve(Map.of(1L, 4));
+
+        inventoryLedger.flush();
+        inventoryLedger.rowWritten(product(1L, 6, 4L));
+        inventoryLedger.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batch.capture());
+        assertEquals(4, batch.getAllValues().get(1).get(0)[0]);
+        assertEquals(4L, batch.getAllValues().get(1).get(0)[3]);
+    }
+
+    @Test
+    void flush_ShouldReportOnlyTheRowsItWrote() throws SQLException {
+        stockRow(1L, 10, 0);
+        stockRow(2L, 10, 0);
+        // Product 2's row changed underneath, so its delta is not written
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            return rows.stream().mapToInt(row -> row[2].equals(2L) ? 0 : 1).toArray();
+        });
+        List<Long> written = new ArrayList<>();
+        inventoryLedger.onRowsWritten(written::addAll);
+        inventoryLedger.reserve(new TreeMap<>(Map.of(1L, 2, 2L, 3)));
+
+        inventoryLedger.flush();
+
+        assertEquals(List.of(1L), written);
+    }
+
+    @Test
+    void reset_ShouldDropReservation_ThatCommitsAfterIt() throws SQLException {
+        stockRow(1L, 10, 3);
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> checkout;
+        try {
+            inventoryLedger.reserve(Map.of(1L, 4));
+            checkout = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        inventoryLedger.reset(product(1L, 50, 4L));
+        checkout.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        inventoryLedger.flush();
+
+        assertEquals(50, inventoryLedger.available(1L));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void reserve_ShouldNeverOversell_WhenThreadsRaceOnOneProduct() throws Exception {
+        stockRow(1L, 100, 0);
+        inventoryLedger.available(1L);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger reserved = new AtomicInteger();
+        try {
+            List<Future<?>> attempts = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                attempts.add(pool.submit(() -> {
+                    if (inventoryLedger.reserve(Map.of(1L, 1)).isEmpty()) {
+                        reserved.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> attempt : attempts) {
+                attempt.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(100, reserved.get());
+        assertEquals(0, inventoryLedger.available(1L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stockRow(long productId, int stock, long version) throws SQLException {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getInt("stock")).thenReturn(stock);
+        when(row.getLong("version")).thenReturn(version);
+        when(jdbcTemplate.queryForObject(anyString(), any(RowMapper.class), eq(productId)))
+            .thenAnswer(invocation -> invocation.<RowMapper<?>>getArgument(1).mapRow(row, 0));
+    }
+
+    private static Product product(long id, int stock, long version) {
+        Product product = new Product("Product " + id, null, BigDecimal.TEN, "Electronics", stock);
+        product.setId(id);
+        product.setVersion(version);
+        return product;
+    }
+}
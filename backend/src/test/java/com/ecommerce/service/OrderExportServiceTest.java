@@ -0,0 +1,109 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import com.ecommerce.repository.OrderRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chunk size 2 so the three exported orders span two item queries
+@DataJpaTest(properties = "app.order-export.chunk-size=2")
+@ActiveProfiles("test")
+@Import({OrderExportService.class, JacksonAutoConfiguration.class})
+class OrderExportServiceTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<Long> orderIds;
+
+    @BeforeEach
+    void setUp() {
+        Order twoItems = new Order(1L, BigDecimal.valueOf(25), DAY.plusHours(10));
+        twoItems.getItems().add(new OrderItem(twoItems, 1L, "Pens, blue", 2, BigDecimal.valueOf(5)));
+        twoItems.getItems().add(new OrderItem(twoItems, 2L, "Notebook", 1, BigDecimal.valueOf(15)));
+        Order noItems = new Order(2L, BigDecimal.ZERO, DAY.plusHours(11));
+        Order oneItem = new Order(1L, BigDecimal.valueOf(9), DAY.plusHours(12));
+        oneItem.setDiscountFlags(Order.DiscountType.FREQUENT_5.bit() | Order.DiscountType.TIME_10.bit());
+        oneItem.getItems().add(new OrderItem(oneItem, 3L, "Stapler", 1, BigDecimal.valueOf(9)));
+        Order outsideRange = new Order(1L, BigDecimal.TEN, DAY.plusDays(4));
+        outsideRange.getItems().add(new OrderItem(outsideRange, 1L, "Pens, blue", 1, BigDecimal.TEN));
+
+        orderIds = new ArrayList<>();
+        for (Order order : List.of(twoItems, noItems, oneItem, outsideRange)) {
+            orderIds.add(orderRepository.save(order).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void exportOrders_ShouldWriteOneCsvLinePerItem_AndOneForOrdersWithoutItems() throws Exception {
+        List<String> lines = export("csv");
+
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("order_id,user_id,order_date,status"));
+        assertTrue(lines.get(1).startsWith(orderIds.get(0) + ",1,2024-03-01T10:00,PENDING,25"));
+        assertTrue(lines.get(1).endsWith(",1,\"Pens, blue\",2,5.00"));
+        assertTrue(lines.get(2).endsWith(",2,Notebook,1,15.00"));
+        assertTrue(lines.get(3).startsWith(orderIds.get(1) + ",2,"));
+        assertTrue(lines.get(3).endsWith(",true,,,,"));
+        assertTrue(lines.get(4).contains(",\"FREQUENT_5,TIME_10\","));
+    }
+
+    @Test
+    void exportOrders_ShouldWriteOneNdjsonObjectPerOrder_WithItsItems() throws Exception {
+        List<String> lines = export("ndjson");
+
+        assertEquals(3, lines.size());
+        List<Long> exportedIds = new ArrayList<>();
+        List<Integer> itemCounts = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode order = objectMapper.readTree(line);
+            exportedIds.add(order.get("orderId").asLong());
+            itemCounts.add(order.get("items").size());
+        }
+        assertEquals(orderIds.subList(0, 3), exportedIds);
+        assertEquals(List.of(2, 0, 1), itemCounts);
+        assertEquals("Pens, blue", objectMapper.readTree(lines.get(0)).get("items").get(0).get("productName").asText());
+    }
+
+    @Test
+    void exportOrders_ShouldRejectUnknownFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> orderExportService.exportOrders(new ByteArrayOutputStream(), DAY, DAY.plusDays(1), "xml"));
+    }
+
+    private List<String> export(String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.exportOrders(out, DAY, DAY.plusDays(1), format);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+}
@@ -0,0 +1,164 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderRequest;
+import com.ecommerce.entity.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIntakeServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @InjectMocks
+    private OrderIntakeService orderIntakeService;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(3);
+    private OrderRequest request;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderIntakeService, "mode", "group-commit");
+        // The window closes when three orders are in, long before the timer would
+        ReflectionTestUtils.setField(orderIntakeService, "windowMs", TimeUnit.SECONDS.toMillis(10));
+        ReflectionTestUtils.setField(orderIntakeService, "maxBatch", 3);
+        ReflectionTestUtils.setField(orderIntakeService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(orderIntakeService, "workers", 1);
+
+        request = new OrderRequest();
+        request.setItems(List.of(new OrderRequest.OrderItemRequest(1L, 1)));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        orderIntakeService.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createOrder_ShouldCommitConcurrentOrdersAsOneWindow() throws Exception {
+        doAnswer(invocation -> {
+            for (OrderService.PendingOrder pending : invocation.<List<OrderService.PendingOrder>>getArgument(0)) {
+                pending.setResult(order(pending.getUserId()));
+            }
+            return null;
+        }).when(orderService).createOrders(anyList());
+        orderIntakeService.start();
+
+        List<Future<Order>> results = submit(1L, 2L, 3L);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1L, results.get(i).get(5, TimeUnit.SECONDS).getUserId());
+        }
+        ArgumentCaptor<List<OrderService.PendingOrder>> window = ArgumentCaptor.forClass(List.class);
+        verify(orderService, times(1)).createOrders(window.capture());
+        assertEquals(3, window.getValue().size());
+        verify(orderService, never()).createOrder(any(), any());
+    }
+
+    @Test
+    void createOrder_ShouldHandEachCallerItsOwnOutcome() throws Exception {
+        doAnswer(invocation -> {
+            for (OrderService.PendingOrder pending : invocation.<List<OrderService.PendingOrder>>getArgument(0)) {
+                if (pending.getUserId() == 2L) {
+                    pending.setFailure(new RuntimeException("User not found"));
+                } else {
+                    pending.setResult(order(pending.getUserId()));
+                }
+            }
+            return null;
+        }).when(orderService).createOrders(anyList());
+        orderIntakeService.start();
+
+        List<Future<Order>> results = submit(1L, 2L, 3L);
+
+        assertEquals(1L, results.get(0).get(5, TimeUnit.SECONDS).getUserId());
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertEquals("User not found", failure.getCause().getMessage());
+        assertEquals(3L, results.get(2).get(5, TimeUnit.SECONDS).getUserId());
+    }
+
+    @Test
+    void createOrder_ShouldReplayEachOrderAlone_WhenTheWindowDoesNotCommit() throws Exception {
+        doAnswer(invocation -> {
+            // Outcomes recorded before the rollback must not leak to the callers
+            for (OrderService.PendingOrder pending : invocation.<List<OrderService.PendingOrder>>getArgument(0)) {
+                pending.setResult(order(99L));
+            }
+            throw new UnexpectedRollbackException("Transaction rolled back because it has been marked as rollback-only");
+        }).when(orderService).createOrders(anyList());
+        when(orderService.createOrder(eq(1L), any())).thenReturn(order(1L));
+        when(orderService.createOrder(eq(2L), any())).thenThrow(new RuntimeException("Audit write failed"));
+        when(orderService.createOrder(eq(3L), any())).thenReturn(order(3L));
+        orderIntakeService.start();
+
+        List<Future<Order>> results = submit(1L, 2L, 3L);
+
+        assertEquals(1L, results.get(0).get(5, TimeUnit.SECONDS).getUserId());
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertEquals("Audit write failed", failure.getCause().getMessage());
+        assertEquals(3L, results.get(2).get(5, TimeUnit.SECONDS).getUserId());
+        verify(orderService, times(3)).createOrder(any(), any());
+    }
+
+    @Test
+    void createOrder_ShouldCommitOnCallersThread_InDirectMode() {
+        ReflectionTestUtils.setField(orderIntakeService, "mode", "direct");
+        orderIntakeService.start();
+        when(orderService.createOrder(1L, request)).thenReturn(order(1L));
+
+        assertEquals(1L, orderIntakeService.createOrder(1L, request).getUserId());
+        verify(orderService, never()).createOrders(anyList());
+    }
+
+    @Test
+    void createOrder_ShouldCommitOnCallersThread_AfterIntakeStopped() throws InterruptedException {
+        orderIntakeService.start();
+        orderIntakeService.stop();
+        when(orderService.createOrder(1L, request)).thenReturn(order(1L));
+
+        assertEquals(1L, orderIntakeService.createOrder(1L, request).getUserId());
+        verify(orderService, never()).createOrders(anyList());
+    }
+
+    // One caller thread per user, each placing one order
+    private List<Future<Order>> submit(Long... userIds) {
+        List<Future<Order>> results = new ArrayList<>();
+        for (Long userId : userIds) {
+            results.add(callers.submit(() -> orderIntakeService.createOrder(userId, request)));
+        }
+        return results;
+    }
+
+    private static Order order(Long userId) {
+        return new Order(userId, BigDecimal.TEN, LocalDateTime.now());
+    }
+}
@@ -1,23 +1,35 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.DiscountRunSummary;
+import com.ecommerce.dto.OrderQuote;
 import com.ecommerce.dto.OrderRequest;
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
+import com.ecommerce.pricing.Campaign;
+import com.ecommerce.pricing.CampaignIndex;
+import com.ecommerce.pricing.Money;
 import com.ecommerce.repository.OrderRepository;
 import com.ecommerce.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -41,6 +53,24 @@ class OrderServiceTest {
     @Mock
     private AuditService auditService;
 
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CampaignService campaignService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private TopCustomerService topCustomerService;
+
+    @Mock
+    private OrderAnalyticsService orderAnalyticsService;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -68,7 +98,7 @@ class OrderServiceTest {
     @Test
     void createOrder_ShouldCreateOrder_WhenValidRequest() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(productService.getProductById(1L)).thenReturn(testProduct);
+        when(productService.reserveStock(Map.of(1L, 2))).thenReturn(Map.of(1L, testProduct));
 
         when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -76,10 +106,67 @@ class OrderServiceTest {
 
         assertNotNull(result);
         assertEquals(1, result.getItems().size());
-        verify(productService).updateStock(1L, 2);
+        // 2 x 999.99 = 1999.98, frequent 5% = 99.999 rounded half-up to 100.00
+        assertEquals(new BigDecimal("100.00"), result.getDiscountApplied());
+        assertEquals(new BigDecimal("1899.98"), result.getTotalAmount());
+        verify(productService).reserveStock(Map.of(1L, 2));
         verify(orderRepository).save(any(Order.class));
     }
 
+    @Test
+    void createOrder_ShouldMergeDuplicateProductLines() {
+        OrderRequest.OrderItemRequest duplicate = new OrderRequest.OrderItemRequest(1L, 3);
+        testOrderRequest.setItems(Arrays.asList(testOrderRequest.getItems().get(0), duplicate));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(productService.reserveStock(Map.of(1L, 5))).thenReturn(Map.of(1L, testProduct));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = orderService.createOrder(1L, testOrderRequest);
+
+        assertEquals(1, result.getItems().size());
+        assertEquals(5, result.getItems().get(0).getQuantity());
+        verify(productService).reserveStock(Map.of(1L, 5));
+    }
+
+    @Test
+    void createOrders_ShouldIsolateFailures_WithinOneWindow() {
+        OrderService.PendingOrder unknownUser = new OrderService.PendingOrder(99L, testOrderRequest);
+        OrderService.PendingOrder valid = new OrderService.PendingOrder(1L, testOrderRequest);
+        when(productService.lockProducts(any())).thenReturn(Set.of(1L));
+        when(userRepository.findById(99L)).thenReturn(Optional.empty());
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(productService.reserveStock(Map.of(1L, 2))).thenReturn(Map.of(1L, testProduct));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.createOrders(Arrays.asList(unknownUser, valid));
+
+        assertNotNull(unknownUser.getFailure());
+        assertNull(unknownUser.getResult());
+        assertNull(valid.getFailure());
+        assertNotNull(valid.getResult());
+        verify(productService).lockProducts(any());
+        verify(orderRepository, times(1)).save(any(Order.class));
+    }
+
+    @Test
+    void createOrders_ShouldFailUnknownProducts_BeforeTouchingTheSharedTransaction() {
+        OrderRequest unknownProduct = new OrderRequest();
+        unknownProduct.setItems(List.of(new OrderRequest.OrderItemRequest(1L, 1),
+            new OrderRequest.OrderItemRequest(404L, 1)));
+        OrderService.PendingOrder missing = new OrderService.PendingOrder(1L, unknownProduct);
+        OrderService.PendingOrder valid = new OrderService.PendingOrder(1L, testOrderRequest);
+        when(productService.lockProducts(any())).thenReturn(Set.of(1L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(productService.reserveStock(Map.of(1L, 2))).thenReturn(Map.of(1L, testProduct));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.createOrders(Arrays.asList(missing, valid));
+
+        assertEquals("Product not found with id: 404", missing.getFailure().getMessage());
+        assertNotNull(valid.getResult());
+        verify(productService, times(1)).reserveStock(any());
+    }
+
     @Test
     void createOrder_ShouldThrowException_WhenUserNotFound() {
         when(userRepository.findById(1L)).thenReturn(Optional.empty());
@@ -89,6 +176,57 @@ class OrderServiceTest {
         assertEquals("User not found", exception.getMessage());
     }
 
+    @Test
+    void quote_ShouldPriceLikeCreateOrder_WithoutReservingOrSaving() {
+        initQuoteCache();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(campaignService.getIndex()).thenReturn(CampaignIndex.EMPTY);
+        when(productService.getCatalogVersion()).thenReturn(1L);
+        when(productService.getProductsForPricing(any())).thenReturn(Map.of(1L, testProduct));
+
+        OrderQuote first = orderService.quote(1L, testOrderRequest);
+        OrderQuote second = orderService.quote(1L, testOrderRequest);
+
+        assertEquals(new BigDecimal("1999.98"), first.getSubtotal());
+        assertEquals(new BigDecimal("100.00"), first.getDiscountApplied());
+        assertEquals(new BigDecimal("1899.98"), first.getTotalAmount());
+        assertEquals("FREQUENT_5", first.getDiscountType());
+        assertSame(first, second);
+        verify(productService, times(1)).getProductsForPricing(any());
+        verify(productService, never()).reserveStock(any());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void quoteAndCreateOrder_ShouldChargeTheSameTotal_WithAndWithoutAnActiveCampaign() {
+        initQuoteCache();
+        long now = System.currentTimeMillis();
+        CampaignIndex running = CampaignIndex.build(2, List.of(new Campaign(1L, "Electronics week", "Electronics",
+                null, 0, false, 1_000, now - 60_000, now + 60_000)));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(campaignService.getIndex()).thenReturn(CampaignIndex.EMPTY, running);
+        when(productService.getCatalogVersion()).thenReturn(1L);
+        when(productService.getProductsForPricing(any())).thenReturn(Map.of(1L, testProduct));
+        when(productService.reserveStock(Map.of(1L, 2))).thenReturn(Map.of(1L, testProduct));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderQuote withoutCampaign = orderService.quote(1L, testOrderRequest);
+        Order orderWithoutCampaign = orderService.createOrder(1L, testOrderRequest);
+        OrderQuote withCampaign = orderService.quote(1L, testOrderRequest);
+        Order orderWithCampaign = orderService.createOrder(1L, testOrderRequest);
+
+        // Campaigns are not applied at checkout: only the frequent 5% is taken off 1999.98
+        BigDecimal total = new BigDecimal("1899.98");
+        assertEquals(total, orderWithoutCampaign.getTotalAmount());
+        assertEquals(total, orderWithCampaign.getTotalAmount());
+        assertEquals(total, withoutCampaign.getTotalAmount());
+        assertEquals(total, withCampaign.getTotalAmount());
+        assertEquals("FREQUENT_5", orderWithCampaign.getDiscountType());
+        // A new campaign version is a new quote, not a cached one
+        assertNotSame(withoutCampaign, withCampaign);
+        verify(productService, times(2)).getProductsForPricing(any());
+    }
+
     @Test
     void applyRandomDiscount_ShouldApplyDiscount_WhenEligibleOrdersExist() {
         Order testOrder = new Order(1L, BigDecimal.valueOf(1000), LocalDateTime.now());
@@ -96,38 +234,94 @@ class OrderServiceTest {
         testOrder.setDiscountType("FREQUENT_5");
         testOrder.setIsVisible(true);
 
-        when(orderRepository.findByOrderDateBetweenAndStatus(any(), any(), any()))
+        when(orderRepository.countRandomDiscountCandidates(any(), any(), any())).thenReturn(1L);
+        when(orderRepository.findRandomDiscountCandidates(any(), any(), any(), any()))
             .thenReturn(Arrays.asList(testOrder));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findAllById(any())).thenReturn(Arrays.asList(testUser));
         when(discountService.calculateDiscount(any(), eq(true), any()))
-            .thenReturn(BigDecimal.valueOf(550));
+            .thenReturn(Money.ofCents(55_000));
         when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         List<Order> result = orderService.applyRandomDiscount(
             LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
 
         assertFalse(result.isEmpty());
+        assertEquals("FREQUENT_5,RANDOM_50", result.get(0).getDiscountType());
         verify(orderRepository).save(any(Order.class));
     }
 
+    @Test
+    void applyRandomDiscount_ShouldReturnEmpty_WhenNothingEligible() {
+        when(orderRepository.countRandomDiscountCandidates(any(), any(), any())).thenReturn(0L);
+
+        List<Order> result = orderService.applyRandomDiscount(
+            LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), 3, 42L);
+
+        assertTrue(result.isEmpty());
+        verify(orderRepository, never()).findRandomDiscountCandidates(any(), any(), any(), any());
+    }
+
+    @Test
+    void pickDistinctOffsets_ShouldBeDistinctInRangeAndReproducibleWithSeed() {
+        Set<Long> first = OrderService.pickDistinctOffsets(1_000_000L, 25, new SplittableRandom(7L));
+        Set<Long> second = OrderService.pickDistinctOffsets(1_000_000L, 25, new SplittableRandom(7L));
+
+        assertEquals(25, first.size());
+        assertEquals(first, second);
+        assertTrue(first.stream().allMatch(offset -> offset >= 0 && offset < 1_000_000L));
+        assertEquals(Set.of(0L, 1L, 2L), OrderService.pickDistinctOffsets(3L, 3, new SplittableRandom(1L)));
+    }
+
     @Test
     void applyTimeDiscount_ShouldApplyDiscount_WhenEligibleOrdersExist() {
+        ReflectionTestUtils.setField(orderService, "discountChunkSize", 500);
         Order testOrder = new Order(1L, BigDecimal.valueOf(1000), LocalDateTime.now());
-        testOrder.setId(1L);
+        testOrder.setId(7L);
         testOrder.setDiscountType("FREQUENT_5");
         testOrder.setIsVisible(true);
 
-        when(orderRepository.findByOrderDateBetweenAndStatus(any(), any(), any()))
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(orderRepository.findTimeDiscountCandidates(any(), any(), any(), eq(0L), any()))
             .thenReturn(Arrays.asList(testOrder));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findAllById(any())).thenReturn(Arrays.asList(testUser));
         when(discountService.calculateDiscount(any(), eq(false), any()))
-            .thenReturn(BigDecimal.valueOf(150));
-        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+            .thenReturn(Money.ofCents(15_000));
 
-        List<Order> result = orderService.applyTimeDiscount(
+        DiscountRunSummary summary = orderService.applyTimeDiscount(
             LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
 
-        assertFalse(result.isEmpty());
-        verify(orderRepository).save(any(Order.class));
+        assertTrue(summary.isCompleted());
+        assertEquals(1, summary.getOrdersDiscounted());
+        assertEquals(1, summary.getChunks());
+        assertEquals(7L, summary.getLastOrderId());
+        assertEquals(new BigDecimal("150.00"), testOrder.getDiscountApplied());
+        assertEquals(new BigDecimal("850.00"), testOrder.getTotalAmount());
+        assertEquals("FREQUENT_5,TIME_10", testOrder.getDiscountType());
+        verify(entityManager).flush();
+        verify(entityManager).clear();
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void updateOrderStatus_ShouldLockOrderAndUpdateSalesRollup() {
+        Order order = new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        order.setId(7L);
+        when(orderRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(order));
+        when(orderRepository.save(order)).thenReturn(order);
+
+        orderService.updateOrderStatus(7L, Order.OrderStatus.APPROVED, 1L);
+
+        verify(salesRollupService).recordStatusChange(order, Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        verify(topCustomerService).recordStatusChange(order, Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        verify(orderAnalyticsService).orderChanged(order);
+        verify(orderRepository, never()).findById(any());
+        assertEquals(Order.OrderStatus.APPROVED, order.getStatus());
+    }
+
+    private void initQuoteCache() {
+        ReflectionTestUtils.setField(orderService, "quoteCacheMaxEntries", 100);
+        ReflectionTestUtils.setField(orderService, "quoteCacheTtlSeconds", 30L);
+        orderService.initQuoteCache();
     }
-}
\ No newline at end of file
+}
@@ -1,25 +1,42 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cache.ProductCache;
 import com.ecommerce.dto.ProductRequest;
 import com.ecommerce.entity.Product;
+import com.ecommerce.exception.InsufficientStockException;
 import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.search.ProductSearchIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +48,24 @@ class ProductServiceTest {
     @Mock
     private AuditService auditService;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private ProductService productService;
 
@@ -49,6 +84,10 @@ class ProductServiceTest {
         testRequest.setPrice(BigDecimal.valueOf(999.99));
         testRequest.setCategory("Electronics");
         testRequest.setStock(50);
+
+        // Behave like an empty cache unless a test says otherwise
+        lenient().when(productCache.getProduct(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Product>>getArgument(1).get());
     }
 
     @Test
@@ -60,9 +99,76 @@ class ProductServiceTest {
         assertNotNull(result);
         assertEquals("iPhone 15", result.getName());
         assertEquals(BigDecimal.valueOf(999.99), result.getPrice());
+        assertEquals("P1", result.getSku());
         verify(productRepository).save(any(Product.class));
     }
 
+    @Test
+    void createProduct_ShouldBumpCatalogVersion_OnlyAfterIndexingTheProduct() {
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        long before = productService.getCatalogVersion();
+        List<Long> versionsSeenWhileIndexing = new ArrayList<>();
+        doAnswer(invocation -> versionsSeenWhileIndexing.add(productService.getCatalogVersion()))
+                .when(searchIndex).index(testProduct);
+
+        productService.createProduct(testRequest);
+
+        assertEquals(List.of(before), versionsSeenWhileIndexing);
+        assertEquals(before + 1, productService.getCatalogVersion());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ledgerFlush_ShouldInvalidateWrittenProductsAndMoveListingVersion() {
+        ArgumentCaptor<Consumer<List<Long>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        productService.init();
+        verify(inventoryLedger).onRowsWritten(listener.capture());
+        String before = productService.getListingVersion();
+
+        listener.getValue().accept(List.of(1L));
+
+        verify(productCache).invalidate(1L);
+        assertNotEquals(before, productService.getListingVersion());
+    }
+
+    @Test
+    void createProduct_ShouldLeaveSkuEmpty_WhenGeneratedSkuIsTaken() {
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(productRepository.existsBySku("P1")).thenReturn(true);
+
+        Product result = productService.createProduct(testRequest);
+
+        assertNull(result.getSku());
+    }
+
+    @Test
+    void searchProducts_ShouldLoadIndexedIdsInRankOrder_WhenIndexIsReady() {
+        Product phoneCase = new Product("iPhone 15 Case", "Case", BigDecimal.TEN, "Accessories", 5);
+        phoneCase.setId(2L);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("iphone", null, null, null, 0, 10))
+                .thenReturn(new ProductSearchIndex.SearchResult(12, List.of(1L, 2L)));
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(phoneCase, testProduct));
+
+        Page<Product> result = productService.searchProducts("iphone", null, null, null, PageRequest.of(0, 10));
+
+        assertEquals(12, result.getTotalElements());
+        assertEquals(List.of(1L, 2L), result.getContent().stream().map(Product::getId).toList());
+        verify(productRepository, never()).searchProducts(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void searchProducts_ShouldQueryDatabase_WhenIndexIsNotReady() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        when(productRepository.searchProducts("iphone", null, null, null, pageable))
+                .thenReturn(new PageImpl<>(List.of(testProduct)));
+
+        Page<Product> result = productService.searchProducts("iphone", null, null, null, pageable);
+
+        assertEquals(1, result.getTotalElements());
+        verify(searchIndex, never()).search(any(), any(), any(), any(), anyInt(), anyInt());
+    }
+
     @Test
     void getProductById_ShouldReturnProduct_WhenExists() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
@@ -82,6 +188,45 @@ class ProductServiceTest {
         assertEquals("Product not found with id: 1", exception.getMessage());
     }
 
+    @Test
+    void getProductById_ShouldNotQueryDatabase_WhenCached() {
+        doReturn(testProduct).when(productCache).getProduct(eq(1L), any());
+
+        assertSame(testProduct, productService.getProductById(1L));
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void updateProduct_ShouldReadDatabaseAndInvalidateCache() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(testProduct)).thenReturn(testProduct);
+        long catalogVersion = productService.getCatalogVersion();
+
+        productService.updateProduct(1L, testRequest);
+
+        verify(productCache, never()).getProduct(any(), any());
+        verify(productCache).invalidate(1L);
+        assertEquals(catalogVersion + 1, productService.getCatalogVersion());
+    }
+
+    @Test
+    void writeActiveProducts_ShouldWriteJsonArrayAndDetachEveryRow() throws Exception {
+        Product second = new Product("AirPods", "Earbuds", BigDecimal.valueOf(199), "Electronics", 10);
+        second.setId(2L);
+        when(productRepository.streamByIsActiveTrue()).thenReturn(Stream.of(testProduct, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productService.writeActiveProducts(out);
+
+        JsonNode body = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(2, body.size());
+        assertEquals("iPhone 15", body.get(0).get("name").asText());
+        assertEquals(2L, body.get(1).get("id").asLong());
+        verify(entityManager).detach(testProduct);
+        verify(entityManager).detach(second);
+        verify(productRepository, never()).findByIsActiveTrue();
+    }
+
     @Test
     void updateStock_ShouldUpdateProduct_WhenSufficientStock() {
         testProduct.setStock(10);
@@ -102,4 +247,44 @@ class ProductServiceTest {
             () -> productService.updateStock(1L, 5));
         assertTrue(exception.getMessage().contains("No hay stock suficiente"));
     }
+
+    @Test
+    void reserveStock_ShouldDecrementAllLinesInOneBatch_WhenSufficientStock() {
+        Product mug = new Product("Coffee Mug", "Ceramic mug", BigDecimal.valueOf(12.99), "Home", 20);
+        mug.setId(2L);
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(Arrays.asList(testProduct, mug));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        Map<Long, Product> result = productService.reserveStock(Map.of(2L, 5, 1L, 10));
+
+        assertEquals(40, result.get(1L).getStock());
+        assertEquals(15, result.get(2L).getStock());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    void reserveStock_ShouldReportEveryShortItem_WhenInsufficientStock() {
+        Product mug = new Product("Coffee Mug", "Ceramic mug", BigDecimal.valueOf(12.99), "Home", 2);
+        mug.setId(2L);
+        testProduct.setStock(1);
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(Arrays.asList(testProduct, mug));
+
+        InsufficientStockException exception = assertThrows(InsufficientStockException.class,
+            () -> productService.reserveStock(Map.of(1L, 3, 2L, 5)));
+
+        assertEquals(2, exception.getShortages().size());
+        assertEquals(1L, exception.getShortages().get(0).getProductId());
+        assertEquals(2L, exception.getShortages().get(1).getProductId());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void reserveStock_ShouldThrowException_WhenProductMissing() {
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(List.of(testProduct));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> productService.reserveStock(Map.of(1L, 1, 9L, 1)));
+        assertEquals("Product not found with id: 9", exception.getMessage());
+    }
 }
\ No newline at end of file
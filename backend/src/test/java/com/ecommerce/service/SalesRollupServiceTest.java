@@ -0,0 +1,148 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import com.ecommerce.entity.ProductSales;
+import com.ecommerce.repository.ProductSalesRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupServiceTest {
+
+    @Mock
+    private ProductSalesRepository productSalesRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private SalesRollupService salesRollupService;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void recordStatusChange_ShouldRankByProductIdAndReverseOnUnapprove() {
+        when(productSalesRepository.findAll()).thenReturn(List.of(new ProductSales(3L, "Cable", 4L)));
+        salesRollupService.load();
+
+        Order first = order(item(1L, "Phone", 2), item(2L, "Case", 1), item(2L, "Case", 4));
+        Order second = order(item(1L, "Phone", 1));
+        salesRollupService.recordStatusChange(first, Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        salesRollupService.recordStatusChange(second, Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        // Not a move to or from APPROVED
+        salesRollupService.recordStatusChange(second, Order.OrderStatus.PENDING, Order.OrderStatus.REJECTED);
+
+        assertEquals(List.of(2L, 3L, 1L), ids(salesRollupService.topSelling(5)));
+        assertEquals(5L, salesRollupService.topSelling(1).get(0)[1]);
+
+        salesRollupService.recordStatusChange(first, Order.OrderStatus.APPROVED, Order.OrderStatus.REJECTED);
+
+        assertEquals(List.of(3L, 1L), ids(salesRollupService.topSelling(2)));
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void recordStatusChange_ShouldOnlyRankAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        salesRollupService.recordStatusChange(order(item(1L, "Phone", 2)),
+                Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        assertTrue(salesRollupService.topSelling(5).isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of(1L), ids(salesRollupService.topSelling(5)));
+    }
+
+    @Test
+    void reconcile_ShouldReplaceRollupWithTotalsFromOrders() {
+        TransactionSynchronizationManager.initSynchronization();
+        salesRollupService.recordStatusChange(order(item(9L, "Drifted", 50)),
+                Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        when(productSalesRepository.aggregateApprovedSales()).thenReturn(List.of(
+                new Object[]{1L, "Phone", 3L}, new Object[]{2L, "Case", 7L}));
+
+        salesRollupService.reconcile();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(jdbcTemplate).execute("LOCK TABLE product_sales IN EXCLUSIVE MODE");
+        verify(jdbcTemplate).update("DELETE FROM product_sales");
+        assertEquals(List.of(2L, 1L), ids(salesRollupService.topSelling(5)));
+        assertNotNull(salesRollupService.getReconciledAt());
+    }
+
+    @Test
+    void reconcile_ShouldNotCountDeltaTwice_WhenItsAfterCommitRunsAfterTheSwap() {
+        TransactionSynchronizationManager.initSynchronization();
+        // Committed before the reconcile took its lock, so the reconciled totals include it
+        salesRollupService.recordStatusChange(order(item(1L, "Phone", 2)),
+                Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        List<TransactionSynchronization> statusChange = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        when(productSalesRepository.aggregateApprovedSales()).thenReturn(List.<Object[]>of(new Object[]{1L, "Phone", 2L}));
+
+        salesRollupService.reconcile();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        statusChange.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(2L, salesRollupService.topSelling(1).get(0)[1]);
+    }
+
+    @Test
+    void reconcile_ShouldReplayDeltas_AppliedWhileItRan() {
+        TransactionSynchronizationManager.initSynchronization();
+        when(productSalesRepository.aggregateApprovedSales()).thenReturn(List.<Object[]>of(new Object[]{1L, "Phone", 3L}));
+        salesRollupService.reconcile();
+        List<TransactionSynchronization> reconcile = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Waited for the reconcile's lock, so the reconciled totals do not include it
+        salesRollupService.recordStatusChange(order(item(1L, "Phone", 2)),
+                Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+        reconcile.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(5L, salesRollupService.topSelling(1).get(0)[1]);
+    }
+
+    private static Order order(OrderItem... items) {
+        Order order = new Order(1L, BigDecimal.TEN, LocalDateTime.now());
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            order.getItems().add(item);
+        }
+        return order;
+    }
+
+    private static OrderItem item(Long productId, String name, int quantity) {
+        return new OrderItem(null, productId, name, quantity, BigDecimal.ONE);
+    }
+
+    private static List<Long> ids(List<Object[]> rows) {
+        return rows.stream().map(row -> (Long) row[2]).toList();
+    }
+}
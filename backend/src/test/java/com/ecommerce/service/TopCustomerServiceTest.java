@@ -0,0 +1,63 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopCustomerServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TopCustomerService topCustomerService;
+
+    @BeforeEach
+    void setUp() {
+        topCustomerService.reset();
+        when(userRepository.findAllById(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void rebuild_ShouldKeepStatusChanges_ThatCommitWhileOrdersAreRead() {
+        Order approvedDuringRebuild = order(7L);
+        when(orderRepository.countApprovedOrdersByUser()).thenAnswer(invocation -> {
+            topCustomerService.recordStatusChange(approvedDuringRebuild,
+                    Order.OrderStatus.PENDING, Order.OrderStatus.APPROVED);
+            return List.<Object[]>of(new Object[]{5L, 3L});
+        });
+        when(orderRepository.streamApprovedOrderDatesSince(any()))
+                .thenReturn(Stream.<Object[]>of(new Object[]{5L, LocalDateTime.now()}));
+
+        topCustomerService.rebuild();
+
+        List<Object[]> top = topCustomerService.topCustomers(TopCustomerService.Window.ALL, 5);
+        assertEquals(List.of(5L, 7L), top.stream().map(row -> (Long) row[2]).toList());
+        assertEquals(1L, top.get(1)[1]);
+        List<Object[]> lastDay = topCustomerService.topCustomers(TopCustomerService.Window.LAST_24_HOURS, 5);
+        assertEquals(2, lastDay.size());
+    }
+
+    private static Order order(Long userId) {
+        return new Order(userId, BigDecimal.TEN, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,20 @@
+-- Moves orders, order_items and audit_logs from per-row IDENTITY ids to pooled sequence
+-- allocation (allocationSize = 50 in the JPA mappings). Run once against an existing
+-- database before deploying the new backend; Hibernate refuses to start while the
+-- sequence increment does not match the allocation size.
+--
+-- setval moves each sequence past the current maximum id so the first block Hibernate
+-- reserves ((value - 49) .. value) cannot overlap existing rows.
+
+BEGIN;
+
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+SELECT setval('orders_id_seq', COALESCE((SELECT MAX(id) FROM orders), 0) + 50);
+
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
+SELECT setval('order_items_id_seq', COALESCE((SELECT MAX(id) FROM order_items), 0) + 50);
+
+ALTER SEQUENCE audit_logs_id_seq INCREMENT BY 50;
+SELECT setval('audit_logs_id_seq', COALESCE((SELECT MAX(id) FROM audit_logs), 0) + 50);
+
+COMMIT;
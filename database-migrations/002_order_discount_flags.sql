@@ -0,0 +1,21 @@
+-- Adds orders.discount_flags, a bitmask of the discount types applied to an order
+-- (1 = FREQUENT_5, 2 = TIME_10, 4 = RANDOM_50), and backfills it from the legacy
+-- comma-joined discount_type strings. discount_type is still written for older readers.
+--
+-- The column stays nullable: a NULL marks a row written by a backend that predates
+-- the column, and the application falls back to parsing discount_type for it.
+
+BEGIN;
+
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS discount_flags SMALLINT;
+-- Wide enough for every combination, e.g. FREQUENT_5,TIME_10,RANDOM_50
+ALTER TABLE orders ALTER COLUMN discount_type TYPE VARCHAR(30);
+
+UPDATE orders
+SET discount_flags =
+      (CASE WHEN discount_type LIKE '%FREQUENT_5%' THEN 1 ELSE 0 END)
+    | (CASE WHEN discount_type LIKE '%TIME_10%' THEN 2 ELSE 0 END)
+    | (CASE WHEN discount_type LIKE '%RANDOM_50%' THEN 4 ELSE 0 END)
+WHERE discount_flags IS NULL;
+
+COMMIT;
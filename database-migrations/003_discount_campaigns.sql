@@ -0,0 +1,17 @@
+-- Lets discount_config hold several overlapping campaigns. A row with a category and/or a
+-- customer segment (FREQUENT or REGULAR) is a campaign; rows with neither remain the single
+-- global config that drives the time and random discounts.
+
+BEGIN;
+
+ALTER TABLE discount_config ADD COLUMN IF NOT EXISTS name VARCHAR(100);
+ALTER TABLE discount_config ADD COLUMN IF NOT EXISTS category VARCHAR(50);
+ALTER TABLE discount_config ADD COLUMN IF NOT EXISTS customer_segment VARCHAR(20);
+ALTER TABLE discount_config ADD COLUMN IF NOT EXISTS priority INTEGER DEFAULT 0;
+ALTER TABLE discount_config ADD COLUMN IF NOT EXISTS is_exclusive BOOLEAN DEFAULT FALSE;
+
+CREATE INDEX IF NOT EXISTS idx_discount_config_campaigns
+    ON discount_config (end_date)
+    WHERE is_active AND (category IS NOT NULL OR customer_segment IS NOT NULL);
+
+COMMIT;
@@ -0,0 +1,13 @@
+-- Composite indexes for the keyset listings (/api/orders/cursor, /api/orders/user/{id}/cursor,
+-- /api/products/cursor). Each matches its query's ORDER BY created_at DESC, id DESC and
+-- filter, so a page is an index range scan that stops after size + 1 rows.
+-- CONCURRENTLY cannot run inside a transaction block.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_visible_created
+    ON orders (created_at DESC, id DESC) WHERE is_visible;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_user_visible_created
+    ON orders (user_id, created_at DESC, id DESC) WHERE is_visible;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_active_created
+    ON products (created_at DESC, id DESC) WHERE is_active;
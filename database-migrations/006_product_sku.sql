@@ -0,0 +1,7 @@
+-- External catalog key for bulk import (POST /api/products/import upserts by sku).
+-- Existing products keep a NULL sku; a unique index allows any number of NULLs.
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS sku VARCHAR(64);
+
+-- ON CONFLICT (sku) needs a non-partial unique index or constraint on the column
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_products_sku ON products (sku);
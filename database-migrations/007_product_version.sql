@@ -0,0 +1,4 @@
+-- Optimistic-lock version for products. JPA increments it on entity updates; the JDBC stock
+-- decrements and the bulk import upsert increment it themselves. It is also the product ETag.
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
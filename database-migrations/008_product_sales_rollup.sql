@@ -0,0 +1,21 @@
+-- Units sold per product across APPROVED orders, kept current by status changes and
+-- reconciled periodically (SalesRollupService). Backfilled here from existing orders.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS product_sales (
+    product_id BIGINT PRIMARY KEY,
+    product_name VARCHAR(100),
+    quantity_sold BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
+
+INSERT INTO product_sales (product_id, product_name, quantity_sold, updated_at)
+SELECT oi.product_id, MAX(oi.product_name), SUM(oi.quantity), CURRENT_TIMESTAMP
+FROM order_items oi
+JOIN orders o ON o.id = oi.order_id
+WHERE o.status = 'APPROVED'
+GROUP BY oi.product_id
+ON CONFLICT (product_id) DO NOTHING;
+
+COMMIT;
@@ -0,0 +1,7 @@
+-- Order analytics (/api/reports/revenue) loads orders in (created_at, id) order and appends
+-- everything past its last (created_at, id) every few seconds. The keyset indexes from 005 only
+-- cover visible orders, so hidden ones would force a sort of the whole table.
+-- CONCURRENTLY cannot run inside a transaction block.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_created
+    ON orders (created_at, id);
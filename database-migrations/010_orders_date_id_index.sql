@@ -0,0 +1,9 @@
+-- /api/orders/export reads orders in an order_date range ordered by (order_date, id). With the id
+-- in the index the cursor walks it in order instead of sorting the whole range first. It also
+-- serves every query idx_orders_date did, so that one is dropped.
+-- CONCURRENTLY cannot run inside a transaction block.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_date_id
+    ON orders (order_date, id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_orders_date;
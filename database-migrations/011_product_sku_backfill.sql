@@ -0,0 +1,7 @@
+-- Products created through POST /api/products (the whole seeded catalog) have no sku, so the
+-- catalog export wrote them with an empty one that the import then rejected. Each gets
+-- 'P' || id, unless an imported product already uses that sku; the export skips any left over.
+
+UPDATE products p SET sku = 'P' || p.id
+WHERE p.sku IS NULL
+  AND NOT EXISTS (SELECT 1 FROM products other WHERE other.sku = 'P' || p.id);
@@ -0,0 +1,17 @@
+-- Stored results for Idempotency-Key retries of order creation (IdempotencyService).
+-- Rows past expires_at are purged periodically, or deleted when their key is reused.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    user_id BIGINT,
+    request_hash VARCHAR(64) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires ON idempotency_keys(expires_at);
+
+COMMIT;
@@ -18,12 +18,14 @@ CREATE TABLE users (
 -- Products table
 CREATE TABLE products (
     id BIGSERIAL PRIMARY KEY,
+    sku VARCHAR(64) UNIQUE,
     name VARCHAR(100) NOT NULL,
     description TEXT,
     price DECIMAL(12,2) NOT NULL,
     category VARCHAR(50) NOT NULL,
     stock INTEGER NOT NULL DEFAULT 0,
     is_active BOOLEAN DEFAULT TRUE,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
@@ -34,7 +36,8 @@ CREATE TABLE orders (
     user_id BIGINT NOT NULL REFERENCES users(id),
     total_amount DECIMAL(12,2) NOT NULL,
     discount_applied DECIMAL(12,2) DEFAULT 0,
-    discount_type VARCHAR(20),
+    discount_type VARCHAR(30),
+    discount_flags SMALLINT,
     order_date TIMESTAMP NOT NULL,
     status VARCHAR(20) DEFAULT 'PENDING',
     is_visible BOOLEAN DEFAULT true,
@@ -59,7 +62,13 @@ CREATE TABLE discount_config (
     time_discount_percentage DECIMAL(5,2) DEFAULT 10.00,
     random_discount_percentage DECIMAL(5,2) DEFAULT 50.00,
     frequent_customer_discount_percentage DECIMAL(5,2) DEFAULT 5.00,
-    is_active BOOLEAN DEFAULT TRUE
+    is_active BOOLEAN DEFAULT TRUE,
+    -- Campaign columns; rows with neither category nor customer_segment are the global config
+    name VARCHAR(100),
+    category VARCHAR(50),
+    customer_segment VARCHAR(20),
+    priority INTEGER DEFAULT 0,
+    is_exclusive BOOLEAN DEFAULT FALSE
 );
 
 -- Audit logs table
@@ -74,16 +83,45 @@ CREATE TABLE audit_logs (
     new_values TEXT
 );
 
+-- Hibernate allocates ids for these tables in blocks of 50 (pooled optimizer), so the
+-- sequences must advance by the same amount
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
+ALTER SEQUENCE audit_logs_id_seq INCREMENT BY 50;
+
+-- Idempotency keys for order creation retries
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    user_id BIGINT,
+    request_hash VARCHAR(64) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+-- Units sold per product across APPROVED orders (maintained by the application)
+CREATE TABLE product_sales (
+    product_id BIGINT PRIMARY KEY,
+    product_name VARCHAR(100),
+    quantity_sold BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
+
 -- Indexes for better performance
 CREATE INDEX idx_users_username ON users(username);
 CREATE INDEX idx_users_email ON users(email);
 CREATE INDEX idx_products_category ON products(category);
 CREATE INDEX idx_products_active ON products(is_active);
 CREATE INDEX idx_orders_user_id ON orders(user_id);
-CREATE INDEX idx_orders_date ON orders(order_date);
+CREATE INDEX idx_orders_date_id ON orders(order_date, id);
+CREATE INDEX idx_orders_visible_created ON orders(created_at DESC, id DESC) WHERE is_visible;
+CREATE INDEX idx_orders_user_visible_created ON orders(user_id, created_at DESC, id DESC) WHERE is_visible;
+CREATE INDEX idx_orders_created ON orders(created_at, id);
+CREATE INDEX idx_products_active_created ON products(created_at DESC, id DESC) WHERE is_active;
 CREATE INDEX idx_order_items_order_id ON order_items(order_id);
 CREATE INDEX idx_order_items_product_id ON order_items(product_id);
 CREATE INDEX idx_audit_logs_entity ON audit_logs(entity_name, entity_id);
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys(expires_at);
 
 -- Insert default admin user (password: admin123)
 INSERT INTO users (username, email, password, first_name, last_name, role) 
@@ -135,6 +173,9 @@ INSERT INTO products (name, description, price, category, stock) VALUES
 ('Essential Oil Diffuser', 'Aromatherapy diffuser', 69.99, 'Home', 22),
 ('Wall Clock Modern', 'Minimalist wall clock', 34.99, 'Home', 25);
 
+-- Sample products get the same sku as products created through the API
+UPDATE products SET sku = 'P' || id WHERE sku IS NULL;
+
 -- Insert default discount configuration
 INSERT INTO discount_config (start_date, end_date, is_active) 
 VALUES (CURRENT_TIMESTAMP, CURRENT_TIMESTAMP + INTERVAL '30 days', TRUE);
\ No newline at end of file